@@ -1,75 +1,94 @@
 package com.netopyr.caj;
 
+import java.io.InputStream;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Assertion {
 
-    private static final Pattern ARRAY_PATH_ELEMENT = Pattern.compile("^(.*)\\[(.*)]$");
-    private static final Pattern ARRAY_INDEX = Pattern.compile("\\[(.*?)]");
 
-    private final Object object;
-    private final EnumSet<Flags> flags;
-    enum Flags {NOT, DEEP, ANY, CONTAINS, DO_LENGTH}
+    static final int NOT       = 1;
+    static final int DEEP      = 1 << 1;
+    static final int ANY       = 1 << 2;
+    static final int CONTAINS  = 1 << 3;
+    static final int DO_LENGTH = 1 << 4;
+    static final int FLAG_COMBINATIONS = 1 << 5;
+    static final int ALL_FLAGS = FLAG_COMBINATIONS - 1;
 
-    private String prefix;
-    private Object actual;
-    private Object expected;
+    final Object object;
+    private final int flags;
 
-    private Callable<Object> lateObjectBinding = null;
 
+    static Assertion create(Object object) {
+        final Assertion[] lattice = new Assertion[FLAG_COMBINATIONS];
+        return completeModifierLattice(new Assertion(object, ALL_FLAGS, lattice), lattice);
+    }
 
-    Assertion(Object object, EnumSet<Flags> flags) {
+    Assertion(Object object, int flags, Assertion[] lattice) {
         this.object = object;
         this.flags = flags;
 
-        final EnumSet<Flags> notFlags = flags.clone();
-        notFlags.add(Flags.NOT);
-        not = flags.contains(Flags.NOT)? this : new Assertion(object, notFlags);
-
-        final EnumSet<Flags> deepFlags = flags.clone();
-        deepFlags.add(Flags.DEEP);
-        deep = flags.contains(Flags.DEEP)? this : new Assertion(object, deepFlags);
-
-        final EnumSet<Flags> anyFlags = flags.clone();
-        anyFlags.add(Flags.ANY);
-        any = flags.contains(Flags.ANY)? this : new Assertion(object, anyFlags);
-
-        final EnumSet<Flags> containsFlags = flags.clone();
-        containsFlags.add(Flags.CONTAINS);
-        contains = flags.contains(Flags.CONTAINS)? this : new Assertion(object, containsFlags);
+        not = modifier(lattice, NOT);
+        deep = modifier(lattice, DEEP);
+        any = modifier(lattice, ANY);
+        contains = modifier(lattice, CONTAINS);
         include = contains;
         includes = contains;
         contain = contains;
-
-        final EnumSet<Flags> doLengthFlags = flags.clone();
-        doLengthFlags.add(Flags.DO_LENGTH);
-        length = flags.contains(Flags.DO_LENGTH)? this : new Assertion(object, doLengthFlags);
+        length = modifier(lattice, DO_LENGTH);
         size = length;
     }
 
+    /**
+     * Creates the remaining nodes for every combination of flags from the node with all flags, which refers
+     * only to itself. The nodes are shared, i.e. {@code expect(x).not.deep} and {@code expect(x).deep.not}
+     * refer to the same instance. Every node is a plain object without further allocations, so an
+     * {@code expect()} allocates the nodes and the array.
+     *
+     * @return the node without any flags, which is the root assertion
+     */
+    static Assertion completeModifierLattice(Assertion top, Assertion[] lattice) {
+        lattice[ALL_FLAGS] = top;
+        for (int flags = ALL_FLAGS - 1; flags >= 0; flags--) {
+            lattice[flags] = top.withFlags(flags, lattice);
+        }
+        return lattice[0];
+    }
+
+    /**
+     * Creates a node of the same subject with other flags. Subclasses return a node of their own type.
+     */
+    Assertion withFlags(int flags, Assertion[] lattice) {
+        return new Assertion(object, flags, lattice);
+    }
+
+    private Assertion modifier(Assertion[] lattice, int flag) {
+        return (flags & flag) != 0? this : lattice[flags | flag];
+    }
+
 
 
-    private boolean getNot() {
-        return flags.contains(Flags.NOT);
+    boolean getNot() {
+        return (flags & NOT) != 0;
     }
     private boolean getDeep() {
-        return flags.contains(Flags.DEEP);
+        return (flags & DEEP) != 0;
     }
     private boolean getAny() {
-        return flags.contains(Flags.ANY);
+        return (flags & ANY) != 0;
     }
-    private boolean getContains() { return flags.contains(Flags.CONTAINS); }
-    private boolean getDoLength() { return flags.contains(Flags.DO_LENGTH); }
+    private boolean getContains() { return (flags & CONTAINS) != 0; }
+    boolean getDoLength() { return (flags & DO_LENGTH) != 0; }
 
 
     /**
@@ -254,14 +273,16 @@ public class Assertion {
      * @return The root of a new Assertion chain on the value.
      */
     public Assertion instanceOf(Class<?> clazz, String prefix) {
-        this.prefix = prefix;
         if (clazz == null) {
             assertEqual(null, prefix);
         } else {
             doAssert(
-                    () -> clazz.isInstance(object),
-                    "expected #{this} to be an instance of " + clazz,
-                    "expected #{this} not to be an instance of " + clazz
+                    clazz.isInstance(object),
+                    "expected #{this} to be an instance of #{exp}",
+                    "expected #{this} not to be an instance of #{exp}",
+                    clazz,
+                    null,
+                    prefix
             );
         }
         return Caj.expect(object);
@@ -297,7 +318,6 @@ public class Assertion {
 
 
     private void doEqual(Object expected, String prefix, String op) {
-        this.prefix = prefix;
         if (getDeep()) {
             eql(expected, prefix);
         } else {
@@ -350,28 +370,31 @@ public class Assertion {
 
 
     public void eql(Object expected, String prefix) {
-        this.prefix = prefix;
-        if ((object instanceof Collection && expected instanceof Collection)
-                || (object instanceof Map && expected instanceof Map)) {
-            doAssert(
-                    () -> object.equals(expected),
-                    "expected #{this} to not deeply equal #{exp}",
-                    "expected #{this} to not deeply equal #{exp}"
-            );
-        } else if (object.getClass().isArray() && expected.getClass().isArray()){
-            final int n = getLength();
-            doAssert(
-                    () -> n == Array.getLength(expected),
-                    "expected #{this} to deeply equal #{exp}",
-                    "expected #{this} to not deeply equal #{exp}"
-            );
-            for (int i = 0; i < n; i++) {
-                final Object elem1 = Array.get(object, i);
-                final Object elem2 = Array.get(expected, i);
-                doAssert(
-                        () -> elem1 == null? elem2 == null : elem1.equals(elem2),
-                        "expected #{this} to deeply equal #{exp}",
-                        "expected #{this} to not deeply equal #{exp}"
+        if (Bytes.isBytes(object) && Bytes.isBytes(expected)) {
+            final ByteBuffer actualBytes = Bytes.asBuffer(object);
+            final ByteBuffer expectedBytes = Bytes.asBuffer(expected);
+            final int offset = Bytes.mismatch(actualBytes, expectedBytes);
+            if (!passes(offset < 0)) {
+                throw failure(
+                        "expected #{this} to deeply equal #{exp}, but #{act}",
+                        "expected #{this} to not deeply equal #{exp}",
+                        expected,
+                        getNot()? null : new Bytes.Difference(actualBytes, expectedBytes, offset),
+                        prefix
+                );
+            }
+        } else if ((object instanceof Collection && expected instanceof Collection)
+                || (object instanceof Map && expected instanceof Map)
+                || (object != null && expected != null && object.getClass().isArray() && expected.getClass().isArray())) {
+            final DeepEquals.Difference difference = DeepEquals.compare(object, expected);
+            if (!passes(difference == null)) {
+                final DiffReport report = getNot()? null : DiffReport.of(object, expected, true);
+                throw failure(
+                        "expected #{this} to deeply equal #{exp}, but #{act}",
+                        "expected #{this} to not deeply equal #{exp}",
+                        expected,
+                        report == null? difference : new Joined(difference, "", report),
+                        prefix
                 );
             }
         } else {
@@ -381,6 +404,7 @@ public class Assertion {
     public void eql(Object expected) {
         eql(expected, null);
     }
+
     public void eqls(Object expected, String prefix) {
         eql(expected, prefix);
     }
@@ -390,14 +414,17 @@ public class Assertion {
 
 
 
-    private void assertLengthWithin(int start, int finish) {
-        final int length = getLength();
-        final String range = start + ".." + finish;
-        doAssert(
-                () -> start <= length && length <= finish,
-                "expected #{this} to have a length within " + range,
-                "expected #{this} to not have a length within " + range
-        );
+    private void assertLengthWithin(int start, int finish, String prefix) {
+        final long length = getLength(finish + 1L, prefix).getValue();
+        if (!passes(start <= length && length <= finish)) {
+            throw failure(
+                    "expected #{this} to have a length within #{exp}",
+                    "expected #{this} to not have a length within #{exp}",
+                    new Joined(start, "..", finish),
+                    null,
+                    prefix
+            );
+        }
     }
 
     /**
@@ -422,20 +449,22 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void within(double start, double finish, String prefix) {
-        this.prefix = prefix;
-        final String range = start + ".." + finish;
         if (getDoLength()) {
-            assertLengthWithin((int) start, (int) finish);
+            assertLengthWithin((int) start, (int) finish, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> start <= number.doubleValue() && number.doubleValue() <= finish,
-                    "expected #{this} to be within " + range,
-                    "expected #{this} to not be within " + range
-            );
+            if (!passes(start <= number.doubleValue() && number.doubleValue() <= finish)) {
+                throw failure(
+                        "expected #{this} to be within #{exp}",
+                        "expected #{this} to not be within #{exp}",
+                        new Joined(start, "..", finish),
+                        null,
+                        prefix
+                );
+            }
         }
     }
 
@@ -471,20 +500,22 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void within(long start, long finish, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthWithin((int)start, (int)finish);
+            assertLengthWithin((int) start, (int) finish, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            final String range = start + ".." + finish;
-            doAssert(
-                    () -> start <= number.longValue() && number.longValue() <= finish,
-                    "expected #{this} to be within " + range,
-                    "expected #{this} to not be within " + range
-            );
+            if (!passes(start <= number.longValue() && number.longValue() <= finish)) {
+                throw failure(
+                        "expected #{this} to be within #{exp}",
+                        "expected #{this} to not be within #{exp}",
+                        new Joined(start, "..", finish),
+                        null,
+                        prefix
+                );
+            }
         }
     }
 
@@ -520,19 +551,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void above(double n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthAbove((int) n);
+            assertLengthAbove((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.doubleValue() > n,
-                    "expected #{this} to be above " + n,
-                    "expected #{this} to be at most " + n
-            );
+            if (!passes(number.doubleValue() > n)) {
+                throw failure("expected #{this} to be above #{exp}", "expected #{this} to be at most #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #above(double, String)} */
@@ -582,19 +610,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void above(long n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthAbove((int) n);
+            assertLengthAbove((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.longValue() > n,
-                    "expected #{this} to be above " + n,
-                    "expected #{this} to be at most " + n
-            );
+            if (!passes(number.longValue() > n)) {
+                throw failure("expected #{this} to be above #{exp}", "expected #{this} to be at most #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #above(long, String)} */
@@ -623,13 +648,11 @@ public class Assertion {
         above(n);
     }
 
-    private void assertLengthAbove(int n) {
-        final int length = getLength();
-        doAssert(
-                () -> length > n,
-                "expected #{this} to have a length above " + n + " but got " + length,
-                "expected #{this} to not have a length above" + n
-        );
+    private void assertLengthAbove(int n, String prefix) {
+        final Elements.Count length = getLength(n + 1L, prefix);
+        if (!passes(length.getValue() > n)) {
+            throw failure("expected #{this} to have a length above #{exp} but got #{act}", "expected #{this} to not have a length above #{exp}", n, length, prefix);
+        }
     }
 
 
@@ -655,19 +678,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void least(double n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthAtLeast((int) n);
+            assertLengthAtLeast((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.doubleValue() >= n,
-                    "expected #{this} to be at least " + n,
-                    "expected #{this} to be below " + n
-            );
+            if (!passes(number.doubleValue() >= n)) {
+                throw failure("expected #{this} to be at least #{exp}", "expected #{this} to be below #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #least(double, String)} */
@@ -709,19 +729,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void least(long n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthAtLeast((int) n);
+            assertLengthAtLeast((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.longValue() >= n,
-                    "expected #{this} to be at least " + n,
-                    "expected #{this} to be below " + n
-            );
+            if (!passes(number.longValue() >= n)) {
+                throw failure("expected #{this} to be at least #{exp}", "expected #{this} to be below #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #least(long, String)} */
@@ -742,13 +759,11 @@ public class Assertion {
         least(n);
     }
 
-    private void assertLengthAtLeast(int n) {
-        final int length = getLength();
-        doAssert(
-                () -> length >= n,
-                "expected #{this} to have a length at least " + n + " but got " + length,
-                "expected #{this} to have a length below " + n
-        );
+    private void assertLengthAtLeast(int n, String prefix) {
+        final Elements.Count length = getLength(n, prefix);
+        if (!passes(length.getValue() >= n)) {
+            throw failure("expected #{this} to have a length at least #{exp} but got #{act}", "expected #{this} to have a length below #{exp}", n, length, prefix);
+        }
     }
 
 
@@ -773,19 +788,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void below(double n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthBelow((int) n);
+            assertLengthBelow((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.doubleValue() < n,
-                    "expected #{this} to be below " + n,
-                    "expected #{this} to be at least " + n
-            );
+            if (!passes(number.doubleValue() < n)) {
+                throw failure("expected #{this} to be below #{exp}", "expected #{this} to be at least #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #below(double, String)} */
@@ -835,19 +847,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void below(long n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthBelow((int) n);
+            assertLengthBelow((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.longValue() < n,
-                    "expected #{this} to be below " + n,
-                    "expected #{this} to be at least " + n
-            );
+            if (!passes(number.longValue() < n)) {
+                throw failure("expected #{this} to be below #{exp}", "expected #{this} to be at least #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #below(long, String)} */
@@ -876,13 +885,11 @@ public class Assertion {
         below(n);
     }
 
-    private void assertLengthBelow(int n) {
-        final int length = getLength();
-        doAssert(
-                () -> length < n,
-                "expected #{this} to have a length below " + n + " but got " + length,
-                "expected #{this} to not have a length below" + n
-        );
+    private void assertLengthBelow(int n, String prefix) {
+        final Elements.Count length = getLength(n, prefix);
+        if (!passes(length.getValue() < n)) {
+            throw failure("expected #{this} to have a length below #{exp} but got #{act}", "expected #{this} to not have a length below #{exp}", n, length, prefix);
+        }
     }
 
 
@@ -907,19 +914,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void most(double n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthAtMost((int) n);
+            assertLengthAtMost((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.doubleValue() <= n,
-                    "expected #{this} to be at most " + n,
-                    "expected #{this} to be above " + n
-            );
+            if (!passes(number.doubleValue() <= n)) {
+                throw failure("expected #{this} to be at most #{exp}", "expected #{this} to be above #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #most(double, String)} */
@@ -961,19 +965,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void most(long n, String prefix) {
-        this.prefix = prefix;
         if (getDoLength()) {
-            assertLengthAtMost((int) n);
+            assertLengthAtMost((int) n, prefix);
         } else {
             if (!(object instanceof Number)) {
-                throw new AssertionError(getMessage("expected #{this} to be an instance of " + Number.class));
+                throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Number.class, null, prefix));
             }
             final Number number = (Number)object;
-            doAssert(
-                    () -> number.longValue() <= n,
-                    "expected #{this} to be at most " + n,
-                    "expected #{this} to be above " + n
-            );
+            if (!passes(number.longValue() <= n)) {
+                throw failure("expected #{this} to be at most #{exp}", "expected #{this} to be above #{exp}", n, null, prefix);
+            }
         }
     }
     /** Alias of {@link #most(long, String)} */
@@ -994,13 +995,11 @@ public class Assertion {
         most(n);
     }
 
-    private void assertLengthAtMost(int n) {
-        final int length = getLength();
-        doAssert(
-                () -> length <= n,
-                "expected #{this} to have a length at most " + n + " but got " + length,
-                "expected #{this} to have a length above " + n
-        );
+    private void assertLengthAtMost(int n, String prefix) {
+        final Elements.Count length = getLength(n + 1L, prefix);
+        if (!passes(length.getValue() <= n)) {
+            throw failure("expected #{this} to have a length at most #{exp} but got #{act}", "expected #{this} to have a length above #{exp}", n, length, prefix);
+        }
     }
 
 
@@ -1015,14 +1014,16 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void match(Pattern pattern, String prefix) {
-        this.prefix = prefix;
         if (!(object instanceof CharSequence)) {
-            throw new AssertionError(getMessage("expected #{this} to be an instance of " + CharSequence.class));
+            throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", CharSequence.class, null, prefix));
         }
         doAssert(
-                () -> pattern.matcher((CharSequence) object).find(),
-                "expected #{this} to match " + formatValue(pattern),
-                "expected #{this} not to match " + formatValue(pattern)
+                pattern.matcher((CharSequence) object).find(),
+                "expected #{this} to match #{exp}",
+                "expected #{this} not to match #{exp}",
+                pattern,
+                null,
+                prefix
         );
     }
     /** Alias of {@link #match(Pattern, String)} */
@@ -1041,7 +1042,7 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void match(String regex, String prefix) {
-        match(Pattern.compile(regex), prefix);
+        match(PatternCache.getDefault().get(regex), prefix);
     }
     /** Alias of {@link #match(String, String)} */
     public void matches(String regex, String prefix) {
@@ -1090,16 +1091,16 @@ public class Assertion {
      * @return an {@code Assertion} on the length
      */
     public Assertion length(int length, String prefix) {
-        this.prefix = prefix;
-        final int n = getLength();
-        this.expected = length;
-        this.actual = n;
+        final Elements.Count n = getLength(length + 1L, prefix);
         doAssert(
-                () -> n == length,
+                n.getValue() == length,
                 "expected #{this} to have a length of #{exp} but got #{act}",
-                "expected #{this} to not have a length of #{act}"
+                "expected #{this} to not have a length of #{act}",
+                length,
+                n,
+                prefix
         );
-        return new Assertion(object, EnumSet.of(Flags.DO_LENGTH));
+        return Caj.expect(object).length;
     }
     /** Alias of {@link #length(int, String)} */
     public Assertion size(int length, String prefix) {
@@ -1149,11 +1150,11 @@ public class Assertion {
      * @param prefix A prefix that will be prepended to any error message generated by this assertion.
      */
     public void empty(String prefix) {
-        this.prefix = prefix;
         doAssert(
-                () -> getLength() == 0,
+                getLength(1, prefix).getValue() == 0,
                 "expected #{this} to be empty",
-                "expected #{this} not to be empty"
+                "expected #{this} not to be empty",
+                prefix
         );
     }
 
@@ -1166,7 +1167,9 @@ public class Assertion {
 
 
     /**
-     * Asserts the inclusion of an object in an array/collection or a substring in a string.
+     * Asserts the inclusion of an object in an array/collection or a substring in a {@code CharSequence}.
+     * If the target is a {@code Path}, the file is searched for a {@code byte[]} or for the UTF-8 encoding
+     * of a {@code CharSequence}.
      *
      * <pre>
      *     expect(new Integer[] {1, 2, 3}).to.include(2);
@@ -1178,10 +1181,11 @@ public class Assertion {
      * @return an Assertion with the contains-flag set
      */
     public Assertion include(Object value, String prefix) {
-        this.prefix = prefix;
-        final boolean expected;
+        final boolean included;
         if (object instanceof Collection) {
-            expected = ((Collection)object).contains(value);
+            included = ((Collection)object).contains(value);
+        } else if (PrimitiveArrays.isPrimitiveArray(object)) {
+            included = PrimitiveArrays.contains(object, value);
         } else if (object.getClass().isArray()) {
             final int n = Array.getLength(object);
             boolean foundElement = false;
@@ -1192,31 +1196,39 @@ public class Assertion {
                     break;
                 }
             }
-            expected = foundElement;
-        } else if (object instanceof String && value instanceof CharSequence) {
-            expected = ((String)object).contains((CharSequence)value);
+            included = foundElement;
+        } else if (object instanceof Path && (value instanceof byte[] || value instanceof CharSequence)) {
+            final byte[] bytes = value instanceof byte[]? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8);
+            included = FileContent.indexOf((Path) object, bytes) >= 0;
+        } else if (Elements.isLazy(object)) {
+            included = Elements.find(object, element -> Objects.equals(value, element)) != Elements.NONE;
+        } else if (object instanceof CharSequence && value instanceof CharSequence) {
+            included = TextSearch.contains((CharSequence) object, (CharSequence) value);
         } else if (object instanceof Map && value instanceof Map) {
-            final Map actualMap = (Map)object;
-            final Map expectedMap = (Map)value;
+            final Map<?, ?> actualMap = (Map<?, ?>)object;
+            final Map<?, ?> expectedMap = (Map<?, ?>)value;
             boolean allContained = true;
-            for (final Object entry : expectedMap.entrySet()) {
-                final Object key = ((Map.Entry)entry).getKey();
+            for (final Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+                final Object key = entry.getKey();
                 allContained = actualMap.containsKey(key);
-                allContained &= Objects.equals(((Map.Entry)entry).getValue(), actualMap.get(key));
+                allContained &= Objects.equals(entry.getValue(), actualMap.get(key));
                 if (!allContained) {
                     break;
                 }
             }
-            expected = allContained;
+            included = allContained;
         } else {
-            expected = false;
+            included = false;
         }
         doAssert(
-                () -> expected,
-                "expected #{this} to include " + formatValue(value),
-                "expected #{this} to not include " + formatValue(value)
+                included,
+                "expected #{this} to include #{exp}",
+                "expected #{this} to not include #{exp}",
+                value,
+                null,
+                prefix
         );
-        return new Assertion(object, EnumSet.of(Flags.CONTAINS));
+        return Caj.expect(object).contains;
     }
     /** Alias of {@link #include(Object, String)} */
     public Assertion includes(Object value, String prefix) {
@@ -1253,95 +1265,6 @@ public class Assertion {
         return include(value);
     }
 
-
-
-    private Object getPropertyValue(String path) {
-        final PathInfo pathInfo = getPathInfo(path, object);
-        doAssert(
-                pathInfo::exists,
-                "expected #{this} to have a property " + formatValue(path),
-                "expected #{this} to not have a property " + formatValue(path)
-        );
-        return pathInfo.getValue();
-    }
-
-    private PathInfo getPathInfo(String path, Object object) {
-        final String[] pathElements = path.split("\\.");
-        Object value = object;
-        for (final String pathElement : pathElements) {
-            final int arrayPos = pathElement.indexOf('[');
-            if (arrayPos != 0) {
-                final String propertyName = arrayPos < 0? pathElement : pathElement.substring(0, arrayPos);
-                try {
-                    value = nextProperty(value, propertyName);
-                } catch (IllegalStateException ex) {
-                    return PathInfo.NOT_FOUND;
-                }
-            }
-            if (arrayPos >= 0) {
-                final Matcher matcher = ARRAY_INDEX.matcher(pathElement.substring(arrayPos));
-                while (matcher.find()) {
-                    try {
-                        final String index = matcher.group(1);
-                        if (value.getClass().isArray()) {
-                            value = Array.get(value, Integer.parseInt(index));
-                        } else if (value instanceof List<?>) {
-                            value = ((List<?>) value).get(Integer.parseInt(index));
-                        } else if (value instanceof Map<?, ?>) {
-                            final Map<?, ?> map = (Map<?, ?>) value;
-                            final TypeVariable[] type = map.getClass().getTypeParameters();
-                            final Object key = type.length > 0 && "java.lang.Integer".equals(type[0].getBounds()[0].getTypeName()) ?
-                                    Integer.parseInt(index) : index;
-                            value = map.get(key);
-                        } else {
-                            return PathInfo.NOT_FOUND;
-                        }
-                    } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
-                        return PathInfo.NOT_FOUND;
-                    }
-                }
-            }
-        }
-        return new PathInfo(value);
-    }
-
-    private Object nextProperty(Object bean, String propertyName) {
-        final Class<?> clazz = bean.getClass();
-        final String propertyGetterBase = propertyName.substring(0, 1).toUpperCase() + propertyName.substring(1);
-        try {
-            final Method getter = clazz.getMethod("get" + propertyGetterBase);
-            if (! void.class.equals(getter.getReturnType())) {
-                return getter.invoke(bean);
-            }
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-            // ignore
-        }
-        try {
-            final Method booleanGetter = clazz.getMethod("is" + propertyGetterBase);
-            final Class<?> returnType = booleanGetter.getReturnType();
-            if (boolean.class.equals(returnType) || Boolean.class.equals(returnType)) {
-                return booleanGetter.invoke(bean);
-            }
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-            // ignore
-        }
-        try {
-            // we also want to support old-style getters like size() and length()
-            final Method getter = clazz.getMethod(propertyName);
-            if (! void.class.equals(getter.getReturnType())) {
-                return getter.invoke(bean);
-            }
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-            // ignore
-        }
-        try {
-            return clazz.getField(propertyName).get(bean);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            // ignore
-        }
-        throw new IllegalStateException("Object " + formatValue(object) + " does not have a property " + formatValue(propertyName));
-    }
-
     /**
      * Asserts that the target has a property `name`, and that
      * the value of that property is equal to  `value`.
@@ -1401,46 +1324,254 @@ public class Assertion {
      * @return an Assertion on the property
      */
     public Assertion property(String path, Object expected, String prefix) {
-        this.prefix = prefix;
+        return property(PropertyPath.of(path), expected, prefix);
+    }
+    public Assertion property(String path, Object expected) {
+        return property(path, expected, null);
+    }
+    public Assertion property(String path) {
+        return property(PropertyPath.of(path));
+    }
 
-        final boolean notFlagIsSet = this.getNot();
-        flags.remove(Flags.NOT);
-        final PathInfo pathInfo = getPathInfo(path, object);
-        final Object value = pathInfo.getValue();
-        if (notFlagIsSet) {
-            flags.add(Flags.NOT);
-        }
+    /**
+     * Same as {@link #property(String, Object, String)} with a path that has been parsed before.
+     *
+     * @param path path to the property that should be compared to the value
+     * @param expected the expected value of the property
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an Assertion on the property
+     */
+    public Assertion property(PropertyPath path, Object expected, String prefix) {
+        final Object found = path.get(object);
+        final boolean exists = found != PropertyAccessor.NO_PROPERTY;
+        final Object value = exists? found : null;
 
+        // the existence of the property is required regardless of the not-flag
         doAssert(
-                () -> pathInfo.exists() != getNot(),
-                "expected #{this} to have a property " + formatValue(path),
-                "#{this} has no property " + formatValue(path)
+                exists != getNot(),
+                "expected #{this} to have a property #{exp}",
+                "#{this} has no property #{exp}",
+                path.toString(),
+                null,
+                prefix
         );
 
-        this.expected = expected;
-        this.actual = value;
-        doAssert(
-                () -> expected == null? value == null : expected.equals(value),
-                "expected #{this} to have a property " + formatValue(path) + " of #{exp}, but got #{act}",
-                "expected #{this} to not have a property " + formatValue(path) + " of #{act}"
-
-        );
+        if (!passes(expected == null? value == null : expected.equals(value))) {
+            throw failure(
+                    "expected #{this} to have a property #{exp}, but got #{act}",
+                    "expected #{this} to not have a property #{exp}",
+                    new Joined(path.toString(), " of ", getNot()? value : expected),
+                    value,
+                    prefix
+            );
+        }
 
         return Caj.expect(value);
     }
-    public Assertion property(String path, Object expected) {
+    public Assertion property(PropertyPath path, Object expected) {
         return property(path, expected, null);
     }
-    public Assertion property(String path) {
-        final PathInfo pathInfo = getPathInfo(path, object);
-        final String descriptor = getDeep()? "deep property" : "property";
-        doAssert(
-                pathInfo::exists,
-                "expected #{this} to have a " + descriptor + " " + formatValue(path),
-                "expected #{this} to not have " + descriptor + " " + formatValue(path)
-        );
-        final Object value = pathInfo.getValue();
-        return Caj.expect(value);
+    public Assertion property(PropertyPath path) {
+        final Object value = path.get(object);
+        if (!passes(value != PropertyAccessor.NO_PROPERTY)) {
+            throw getDeep()
+                    ? failure("expected #{this} to have a deep property #{exp}", "expected #{this} to not have deep property #{exp}", path.toString(), null, null)
+                    : failure("expected #{this} to have a property #{exp}", "expected #{this} to not have property #{exp}", path.toString(), null, null);
+        }
+        return Caj.expect(value != PropertyAccessor.NO_PROPERTY? value : null);
+    }
+
+
+    /**
+     * Asserts that the target has all the given properties and that their values are equal
+     * to the expected values. The paths are resolved together, a value that is shared by
+     * several paths like {@code origin} below is looked up only once. All properties that do not
+     * match are reported in a single error.
+     *
+     * <pre>
+     *     final Map&lt;String, Object&gt; expected = new HashMap&lt;&gt;();
+     *     expected.put("name", "Sencha");
+     *     expected.put("origin.country", "Japan");
+     *     expected.put("origin.region", "Shizuoka");
+     *     expect(tea).to.have.properties(expected);
+     * </pre>
+     *
+     * @param expected the expected values mapped by the paths to the properties
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void properties(Map<String, ?> expected, String prefix) {
+        if (expected == null || expected.isEmpty()) {
+            throw new IllegalArgumentException("properties are required");
+        }
+        final PropertyPath[] paths = new PropertyPath[expected.size()];
+        final Object[] expectedValues = new Object[expected.size()];
+        int n = 0;
+        for (final Map.Entry<String, ?> entry : expected.entrySet()) {
+            paths[n] = PropertyPath.of(entry.getKey());
+            expectedValues[n] = entry.getValue();
+            n++;
+        }
+        final Object[] values = PropertyPath.getAll(object, paths);
+
+        PropertyMismatches mismatches = null;
+        for (int i = 0; i < n; i++) {
+            // like in property(), the existence of a property is required regardless of the not-flag
+            if (values[i] == PropertyAccessor.NO_PROPERTY || !passes(Objects.equals(expectedValues[i], values[i]))) {
+                if (mismatches == null) {
+                    mismatches = new PropertyMismatches();
+                }
+                mismatches.add(paths[i], values[i]);
+            }
+        }
+        if (mismatches != null) {
+            throw failure(
+                    "expected #{this} to have properties #{exp}, but #{act}",
+                    "expected #{this} to not have properties #{exp}, but #{act}",
+                    expected,
+                    mismatches,
+                    prefix
+            );
+        }
+    }
+    public void properties(Map<String, ?> expected) {
+        properties(expected, null);
+    }
+
+
+
+    /**
+     * Asserts that the target file has the same content as another file. The files are mapped into memory
+     * chunk by chunk and compared until the first difference, which is shown in a hex dump.
+     *
+     * <pre>
+     *     expect(Paths.get("export.bin")).to.have.sameContentAs(Paths.get("golden/export.bin"));
+     * </pre>
+     *
+     * @param expected the file with the expected content
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void sameContentAs(Path expected, String prefix) {
+        if (!(object instanceof Path)) {
+            throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Path.class, null, prefix));
+        }
+        final long offset = FileContent.mismatch((Path) object, expected);
+        if (!passes(offset < 0)) {
+            throw failure(
+                    "expected #{this} to have the same content as #{exp}, but #{act}",
+                    "expected #{this} to not have the same content as #{exp}",
+                    expected,
+                    getNot()? null : new FileContent.Difference((Path) object, expected, offset),
+                    prefix
+            );
+        }
+    }
+    public void sameContentAs(Path expected) {
+        sameContentAs(expected, null);
+    }
+
+    /**
+     * Asserts that the target file has the same lines as another file, regardless of their order. A line that
+     * appears n times in one file has to appear n times in the other file. Large files are hash-partitioned
+     * into temporary files, which are compared one by one, so the memory needed does not grow with the size
+     * of the files. A sample of the missing and extra lines is shown.
+     *
+     * <pre>
+     *     expect(Paths.get("out/orders.csv")).to.have.sameLinesAs(Paths.get("golden/orders.csv"));
+     * </pre>
+     *
+     * @param expected the file with the expected lines
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void sameLinesAs(Path expected, String prefix) {
+        if (!(object instanceof Path)) {
+            throw new AssertionError(getMessage("expected #{this} to be an instance of #{exp}", Path.class, null, prefix));
+        }
+        final UnorderedLines.Difference difference = UnorderedLines.compare((Path) object, expected);
+        if (!passes(difference == null)) {
+            throw failure(
+                    "expected #{this} to have the same lines as #{exp}, but #{act}",
+                    "expected #{this} to not have the same lines as #{exp}",
+                    expected,
+                    difference,
+                    prefix
+            );
+        }
+    }
+    public void sameLinesAs(Path expected) {
+        sameLinesAs(expected, null);
+    }
+
+    /**
+     * Asserts that the target {@code InputStream} or {@code ReadableByteChannel} has the same content as an
+     * {@code InputStream}. Both are read through fixed buffers until the first difference, which is shown in
+     * a hex dump. The streams are consumed, but not closed.
+     *
+     * <pre>
+     *     expect(response.getBody()).to.have.sameContentAs(getClass().getResourceAsStream("expected.bin"));
+     * </pre>
+     *
+     * @param expected the stream with the expected content
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void sameContentAs(InputStream expected, String prefix) {
+        assertSameStreamContent(expected, prefix);
+    }
+    public void sameContentAs(InputStream expected) {
+        sameContentAs(expected, null);
+    }
+
+    /**
+     * Asserts that the target {@code InputStream} or {@code ReadableByteChannel} has the same content as a
+     * {@code ReadableByteChannel}.
+     *
+     * @param expected the channel with the expected content
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @see #sameContentAs(InputStream, String)
+     */
+    public void sameContentAs(ReadableByteChannel expected, String prefix) {
+        assertSameStreamContent(expected, prefix);
+    }
+    public void sameContentAs(ReadableByteChannel expected) {
+        sameContentAs(expected, null);
+    }
+
+    private void assertSameStreamContent(Object expected, String prefix) {
+        if (!StreamContent.isStream(object)) {
+            throw new AssertionError(getMessage("expected #{this} to be an InputStream or ReadableByteChannel", prefix));
+        }
+        final StreamContent.Difference difference = StreamContent.mismatch(object, expected);
+        if (!passes(difference == null)) {
+            throw failure(
+                    "expected #{this} to have the same content as #{exp}, but #{act}",
+                    "expected #{this} to not have the same content as #{exp}",
+                    expected,
+                    difference,
+                    prefix
+            );
+        }
+    }
+
+    /**
+     * Computes the digest of the content of the target {@code InputStream}, {@code ReadableByteChannel},
+     * {@code byte[]} or {@code ByteBuffer} and changes the target of the following assertions to the digest
+     * as a lower case hex string. Streams are read through a fixed buffer and consumed, but not closed.
+     *
+     * <pre>
+     *     expect(inputStream).to.have.digest("SHA-256").that.equal("9f86d081884c7d659a2feaa0c55ad015...");
+     * </pre>
+     *
+     * @param algorithm the name of the algorithm, e.g. {@code "SHA-256"}
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an assertion of the digest
+     */
+    public Assertion digest(String algorithm, String prefix) {
+        if (!StreamContent.isStream(object) && !Bytes.isBytes(object)) {
+            throw new AssertionError(getMessage("expected #{this} to be an InputStream, ReadableByteChannel, byte[] or ByteBuffer", prefix));
+        }
+        return Caj.expect(StreamContent.digest(object, algorithm));
+    }
+    public Assertion digest(String algorithm) {
+        return digest(algorithm, null);
     }
 
 
@@ -1449,12 +1580,14 @@ public class Assertion {
         string(expected, null);
     }
     public void string(CharSequence expected, String prefix) {
-        this.prefix = prefix;
-        Caj.expect(object).is.a(String.class, prefix);
+        Caj.expect(object).is.a(CharSequence.class, prefix);
         doAssert(
-                () -> ((String) object).contains(expected),
-                "expected #{this} to contain " + formatValue(expected),
-                "expected #{this} to not contain " + formatValue(expected)
+                TextSearch.contains((CharSequence) object, expected),
+                "expected #{this} to contain #{exp}",
+                "expected #{this} to not contain #{exp}",
+                expected,
+                null,
+                prefix
         );
     }
 
@@ -1464,15 +1597,14 @@ public class Assertion {
         this.keys(keys, null);
     }
     public void keys(Collection<String> keys, String prefix) {
-        this.prefix = prefix;
         if (keys == null || keys.isEmpty()) {
             throw new IllegalArgumentException("keys are required");
         }
         if (! (object instanceof Map)) {
-            final String message = getMessage("expected #{this} to be a Map");
+            final String message = getMessage("expected #{this} to be a Map", prefix);
             throw new AssertionError(message);
         }
-        final Map map = (Map)object;
+        final Map<?, ?> map = (Map<?, ?>)object;
 
         final boolean ok;
         if (getAny()) {
@@ -1485,25 +1617,11 @@ public class Assertion {
             ok = tmpOk;
         }
 
-        final StringBuilder builder = new StringBuilder(getContains()? "contain " : "have ");
-        if (keys.size() == 1) {
-            builder.append("key ").append(formatValue(keys.iterator().next()));
-        } else {
-            builder.append("keys ");
-            final List<String> keyLabels = new ArrayList<>(keys);
-            final String last = keyLabels.remove(keys.size() - 1);
-            for (final String keyLabel : keyLabels) {
-                builder.append(formatValue(keyLabel)).append(", ");
-            }
-            builder.append(getAny()? "or " : "and ");
-            builder.append(formatValue(last));
+        if (!passes(ok)) {
+            throw getContains()
+                    ? failure("expected #{this} to contain #{exp}", "expected #{this} to not contain #{exp}", new KeyList(keys, getAny()), null, prefix)
+                    : failure("expected #{this} to have #{exp}", "expected #{this} to not have #{exp}", new KeyList(keys, getAny()), null, prefix);
         }
-
-        doAssert(
-                () -> ok,
-                "expected #{this} to " + builder.toString(),
-                "expected #{this} to not " + builder.toString()
-        );
     }
     public void keys(String... keys) {
         if (keys == null) {
@@ -1524,8 +1642,8 @@ public class Assertion {
 
 
     private Assertion assertCause(Class<? extends Throwable> throwableClass, Throwable expectedThrowable, String errorMessage, Pattern errorPattern, String prefix) {
-        this.prefix = prefix;
         Assertion chainedAssertion = null;
+        Throwable thrownThrowable = null;
 
         try {
             if (object instanceof Runnable) {
@@ -1535,28 +1653,32 @@ public class Assertion {
             } else if (object instanceof Supplier) {
                 ((Supplier)object).get();
             } else {
-                throw new AssertionError(getMessage("expected #{this} to be a Runnable, Callable, or Supplier"));
+                throw new AssertionError(getMessage("expected #{this} to be a Runnable, Callable, or Supplier", prefix));
             }
         } catch (Throwable actualThrowable) {
-            actual = actualThrowable;
+            thrownThrowable = actualThrowable;
             chainedAssertion = Caj.expect(actualThrowable);
             if (throwableClass != null) {
-                expected = throwableClass;
                 doAssert(
-                        () -> throwableClass.isAssignableFrom(actualThrowable.getClass()),
+                        throwableClass.isAssignableFrom(actualThrowable.getClass()),
                         "expected #{this} to cause #{exp} but #{act} was thrown",
-                        "expected #{this} to not cause #{exp} but #{act} was thrown"
+                        "expected #{this} to not cause #{exp} but #{act} was thrown",
+                        throwableClass,
+                        actualThrowable,
+                        prefix
                 );
 
                 if (errorMessage == null && errorPattern == null) {
                     return chainedAssertion;
                 }
             } else if (expectedThrowable != null) {
-                expected = expectedThrowable;
                 doAssert(
-                        () -> expectedThrowable.equals(actualThrowable),
+                        expectedThrowable.equals(actualThrowable),
                         "expected #{this} to cause #{exp} but #{act} was thrown",
-                        "expected #{this} to not cause #{exp}"
+                        "expected #{this} to not cause #{exp}",
+                        expectedThrowable,
+                        actualThrowable,
+                        prefix
                 );
 
                 if (errorMessage == null && errorPattern == null) {
@@ -1566,39 +1688,44 @@ public class Assertion {
 
             if (errorMessage != null) {
                 final String message = actualThrowable.getMessage();
-                expected = errorMessage;
-                actual = message;
                 doAssert(
-                        () -> message != null && message.contains(errorMessage),
+                        message != null && message.contains(errorMessage),
                         "expected #{this} to cause an Error or Exception including #{exp} but got #{act}",
-                        "expected #{this} to cause an Error or Exception not including #{exp}"
+                        "expected #{this} to cause an Error or Exception not including #{exp}",
+                        errorMessage,
+                        message,
+                        prefix
                 );
                 return chainedAssertion;
             } else if (errorPattern != null) {
                 final String message = actualThrowable.getMessage();
-                expected = errorPattern;
-                actual = message;
                 doAssert(
-                        () -> message != null && errorPattern.matcher(message).find(),
+                        message != null && errorPattern.matcher(message).find(),
                         "expected #{this} to cause an Error or Exception matching #{exp} but got #{act}",
-                        "expected #{this} to cause an Error or Exception not matching #{exp}"
+                        "expected #{this} to cause an Error or Exception not matching #{exp}",
+                        errorPattern,
+                        message,
+                        prefix
                 );
                 return chainedAssertion;
             }
         }
 
-        final boolean thrown = actual != null;
-        final String actuallyGot = thrown? " but #{act} was thrown" : "";
-
-        final String expectedThrown =
-                throwableClass != null? throwableClass.getSimpleName()
-                        : expectedThrowable != null? expectedThrowable.toString()
-                        :"an Error or Exception";
-        doAssert(
-                () -> thrown,
-                "expected #{this} to cause " + expectedThrown + actuallyGot,
-                "expected #{this} to not cause " + expectedThrown + actuallyGot
-        );
+        final boolean thrown = thrownThrowable != null;
+        if (!passes(thrown)) {
+            final String actuallyGot = thrown? " but #{act} was thrown" : "";
+            final String expectedThrown =
+                    throwableClass != null? throwableClass.getSimpleName()
+                            : expectedThrowable != null? expectedThrowable.toString()
+                            :"an Error or Exception";
+            throw failure(
+                    "expected #{this} to cause " + expectedThrown + actuallyGot,
+                    "expected #{this} to not cause " + expectedThrown + actuallyGot,
+                    null,
+                    thrownThrowable,
+                    prefix
+            );
+        }
 
         return chainedAssertion != null? chainedAssertion : Caj.expect(null);
     }
@@ -1663,130 +1790,350 @@ public class Assertion {
 
 
 
-    public void satisfy(Predicate<Object> predicate, String prefix) {
-        this.prefix = prefix;
-        doAssert(
-                () -> predicate.test(object),
-                "expected #{this} to satisfy " + formatValue(predicate),
-                "expected #{this} to not satisfy " + formatValue(predicate)
-        );
-    }
-    public void satisfy(Predicate<Object> predicate) {
-        satisfy(predicate, null);
-    }
-
-
-
-    public void closeTo(double expected, double delta, String prefix) {
-        this.prefix = prefix;
-        if (! (object instanceof Number)) {
-            final String message = getMessage("expected #{this} to be an instance of class java.lang.Number");
-            throw new AssertionError(message);
+    /**
+     * Asserts that every element of the target satisfies a predicate. The target can be an array, an
+     * {@code Iterable}, an {@code Iterator} or a {@code Stream}. The elements are consumed until the first
+     * element that does not satisfy the predicate.
+     *
+     * <pre>
+     *     expect(Stream.of(1, 2, 3)).to.have.every(n -> (Integer) n &gt; 0);
+     * </pre>
+     *
+     * @param predicate the predicate every element has to satisfy
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void every(Predicate<Object> predicate, String prefix) {
+        final Object violation = findElement(predicate.negate(), prefix);
+        if (!passes(violation == Elements.NONE)) {
+            throw failure(
+                    "expected every element of #{this} to satisfy the predicate, but #{act} does not",
+                    "expected some element of #{this} to not satisfy the predicate",
+                    null,
+                    violation,
+                    prefix
+            );
         }
-        doAssert(
-                () -> Math.abs(expected - ((Number) object).doubleValue()) <= delta,
-                "expected #{this} to be close to " + expected + " +/- " + delta,
-                "expected #{this} not to be close to " + expected + " +/- " + delta
-        );
     }
-    public void closeTo(double expected, double delta) {
-        closeTo(expected, delta, null);
+    public void every(Predicate<Object> predicate) {
+        every(predicate, null);
     }
-    public void closeTo(long expected, long delta, String prefix) {
-        this.prefix = prefix;
-        if (! (object instanceof Number)) {
-            final String message = getMessage("expected #{this} to be an instance of class java.lang.Number");
-            throw new AssertionError(message);
+
+    /**
+     * Asserts that some element of the target satisfies a predicate. The target can be an array, an
+     * {@code Iterable}, an {@code Iterator} or a {@code Stream}. The elements are consumed until the first
+     * element that satisfies the predicate.
+     *
+     * <pre>
+     *     expect(lines.iterator()).to.have.some(line -> ((String) line).startsWith("ERROR"));
+     * </pre>
+     *
+     * @param predicate the predicate some element has to satisfy
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void some(Predicate<Object> predicate, String prefix) {
+        final Object match = findElement(predicate, prefix);
+        if (!passes(match != Elements.NONE)) {
+            throw failure(
+                    "expected some element of #{this} to satisfy the predicate",
+                    "expected no element of #{this} to satisfy the predicate, but #{act} does",
+                    null,
+                    match,
+                    prefix
+            );
         }
-        doAssert(
-                () -> Math.abs(expected - ((Number) object).longValue()) <= delta,
-                "expected #{this} to be close to " + expected + " +/- " + delta,
-                "expected #{this} not to be close to " + expected + " +/- " + delta
-        );
     }
-    public void closeTo(long expected, long delta) {
-        closeTo(expected, delta, null);
+    public void some(Predicate<Object> predicate) {
+        some(predicate, null);
     }
 
-
-    @SuppressWarnings("unchecked")
-    private boolean isSubsetOf(Object subsetParam, Object supersetParam) {
-        final Collection subset;
-        if (subsetParam instanceof Collection) {
-            subset = (Collection)subsetParam;
-        } else if (subsetParam.getClass().isArray()) {
-            final int n = Array.getLength(subsetParam);
-            subset = new ArrayList<>(n);
-            for (int i=0; i < n; i++) {
-                subset.add(Array.get(subsetParam, i));
-            }
-        } else {
-            throw new AssertionError("expected " + formatValue(subsetParam) + " to be an Array or a Collection");
+    /**
+     * Asserts that no element of the target satisfies a predicate. The target can be an array, an
+     * {@code Iterable}, an {@code Iterator} or a {@code Stream}. The elements are consumed until the first
+     * element that satisfies the predicate.
+     *
+     * <pre>
+     *     expect(IntStream.range(0, 1000)).to.have.none(n -> (Integer) n &lt; 0);
+     * </pre>
+     *
+     * @param predicate the predicate no element may satisfy
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void none(Predicate<Object> predicate, String prefix) {
+        final Object match = findElement(predicate, prefix);
+        if (!passes(match == Elements.NONE)) {
+            throw failure(
+                    "expected no element of #{this} to satisfy the predicate, but #{act} does",
+                    "expected some element of #{this} to satisfy the predicate",
+                    null,
+                    match,
+                    prefix
+            );
         }
+    }
+    public void none(Predicate<Object> predicate) {
+        none(predicate, null);
+    }
 
-        final Collection superset;
-        if (supersetParam instanceof Collection) {
-            superset = (Collection)supersetParam;
-        } else if (supersetParam.getClass().isArray()) {
-            final int n = Array.getLength(supersetParam);
-            superset = new ArrayList<>(n);
-            for (int i=0; i < n; i++) {
-                superset.add(Array.get(supersetParam, i));
-            }
-        } else {
-            throw new AssertionError("expected " + formatValue(supersetParam) + " to be an Array or a Collection");
+    private Object findElement(Predicate<Object> predicate, String prefix) {
+        requireElements(prefix);
+        return Elements.find(object, predicate);
+    }
+
+    private void requireElements(String prefix) {
+        if (!Elements.isSupported(object)) {
+            throw new AssertionError(getMessage("expected #{this} to be an array, Iterable, Iterator or Stream", prefix));
         }
+    }
+
+
 
-        return superset.containsAll(subset);
+    /**
+     * Asserts that the elements of the target are sorted according to a comparator. The target can be an
+     * array, an {@code Iterable}, an {@code Iterator} or a {@code Stream}. The elements are checked in a
+     * single pass, which stops at the first element that is out of order.
+     *
+     * <pre>
+     *     expect(orders).to.be.sorted(Comparator.comparing(Order::getCreatedAt));
+     * </pre>
+     *
+     * @param comparator the order of the elements
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void sorted(Comparator<?> comparator, String prefix) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("comparator is required");
+        }
+        assertOrdered(comparator, false, false, "sorted", prefix);
+    }
+    public void sorted(Comparator<?> comparator) {
+        sorted(comparator, null);
     }
-    public void members(String prefix, Object... subset) {
-        this.prefix = prefix;
-        this.expected = subset;
 
-        if (getContains()) {
-            doAssert (
-                    () -> isSubsetOf(subset, object),
-                    "expected #{this} to be a superset of #{exp}",
-                    "expected #{this} to not be a superset of #{exp}"
+    /**
+     * Asserts that the elements of the target are sorted in their natural order.
+     *
+     * <pre>
+     *     expect(new String[] {"a", "b", "b"}).to.be.sorted();
+     * </pre>
+     *
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void sorted(String prefix) {
+        assertOrdered(null, false, false, "sorted", prefix);
+    }
+    public void sorted() {
+        sorted((String) null);
+    }
+
+    /**
+     * Asserts that every element of the target is greater than or equal to the element before it. Primitive
+     * arrays are checked without boxing their elements.
+     *
+     * <pre>
+     *     expect(new int[] {1, 2, 2, 3}).to.be.increasing();
+     *     expect(new int[] {1, 2, 3}).to.be.strictlyIncreasing();
+     * </pre>
+     *
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void increasing(String prefix) {
+        assertOrdered(null, false, false, "increasing", prefix);
+    }
+    public void increasing() {
+        increasing(null);
+    }
+
+    /**
+     * Asserts that every element of the target is less than or equal to the element before it. Primitive
+     * arrays are checked without boxing their elements.
+     *
+     * <pre>
+     *     expect(new int[] {3, 2, 2, 1}).to.be.decreasing();
+     *     expect(new int[] {3, 2, 1}).to.be.strictlyDecreasing();
+     * </pre>
+     *
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void decreasing(String prefix) {
+        assertOrdered(null, true, false, "decreasing", prefix);
+    }
+    public void decreasing() {
+        decreasing(null);
+    }
+
+    /**
+     * Asserts that every element of the target is greater than the element before it.
+     *
+     * <pre>
+     *     expect(new long[] {1L, 2L, 5L}).to.be.strictlyIncreasing();
+     * </pre>
+     *
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void strictlyIncreasing(String prefix) {
+        assertOrdered(null, false, true, "strictly increasing", prefix);
+    }
+    public void strictlyIncreasing() {
+        strictlyIncreasing(null);
+    }
+
+    /**
+     * Asserts that every element of the target is less than the element before it.
+     *
+     * <pre>
+     *     expect(new double[] {3.0, 2.0, 1.0}).to.be.strictlyDecreasing();
+     * </pre>
+     *
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void strictlyDecreasing(String prefix) {
+        assertOrdered(null, true, true, "strictly decreasing", prefix);
+    }
+    public void strictlyDecreasing() {
+        strictlyDecreasing(null);
+    }
+
+    private void assertOrdered(Comparator<?> comparator, boolean descending, boolean strict, String description, String prefix) {
+        requireElements(prefix);
+        final Sequences.Violation violation = Sequences.unordered(object, comparator, descending, strict);
+        if (!passes(violation == null)) {
+            throw failure(
+                    "expected #{this} to be " + description + ", but #{act}",
+                    "expected #{this} to not be " + description,
+                    null,
+                    violation,
+                    prefix
             );
+        }
+    }
 
-        } else {
-            doAssert(
-                    () -> isSubsetOf(object, subset) && isSubsetOf(subset, object),
-                    "expected #{this} to have the same members as #{exp}",
-                    "expected #{this} to not have the same members as #{exp}"
+    /**
+     * Asserts that the elements of the target are distinct. The elements are checked in a single pass,
+     * which stops at the first duplicate. Primitive arrays are checked with a primitive hash set.
+     *
+     * <pre>
+     *     expect(ids).to.have.distinct();
+     * </pre>
+     *
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     */
+    public void distinct(String prefix) {
+        requireElements(prefix);
+        final Sequences.Violation violation = Sequences.duplicate(object);
+        if (!passes(violation == null)) {
+            throw failure(
+                    "expected #{this} to have distinct elements, but #{act}",
+                    "expected #{this} to not have distinct elements",
+                    null,
+                    violation,
+                    prefix
             );
         }
     }
-    public void members(Object... subset) {
-        members(null, subset);
+    public void distinct() {
+        distinct(null);
     }
 
 
 
-    public Assertion change(Object bean, String property, String prefix) {
-        this.prefix = prefix;
-        Caj.expect(bean).to.have.property(property);
+    public void satisfy(Predicate<Object> predicate, String prefix) {
+        doAssert(
+                predicate.test(object),
+                "expected #{this} to satisfy #{exp}",
+                "expected #{this} to not satisfy #{exp}",
+                predicate,
+                null,
+                prefix
+        );
+    }
+    public void satisfy(Predicate<Object> predicate) {
+        satisfy(predicate, null);
+    }
 
-        final Object initial = nextProperty(bean, property);
-        if (object instanceof Runnable) {
-            ((Runnable)object).run();
-        } else if (object instanceof Callable) {
-            try {
-                ((Callable) object).call();
-            } catch (Exception e) {
-                throw new AssertionError(getMessage("Calling #{this} threw an exception"), e);
+
+
+    public void closeTo(double expected, double delta, String prefix) {
+        if (! (object instanceof Number)) {
+            final String message = getMessage("expected #{this} to be an instance of class java.lang.Number", prefix);
+            throw new AssertionError(message);
+        }
+        if (!passes(Math.abs(expected - ((Number) object).doubleValue()) <= delta)) {
+            throw failure(
+                    "expected #{this} to be close to #{exp}",
+                    "expected #{this} not to be close to #{exp}",
+                    new Joined(expected, " +/- ", delta),
+                    null,
+                    prefix
+            );
+        }
+    }
+    public void closeTo(double expected, double delta) {
+        closeTo(expected, delta, null);
+    }
+    public void closeTo(long expected, long delta, String prefix) {
+        if (! (object instanceof Number)) {
+            final String message = getMessage("expected #{this} to be an instance of class java.lang.Number", prefix);
+            throw new AssertionError(message);
+        }
+        if (!passes(Math.abs(expected - ((Number) object).longValue()) <= delta)) {
+            throw failure(
+                    "expected #{this} to be close to #{exp}",
+                    "expected #{this} not to be close to #{exp}",
+                    new Joined(expected, " +/- ", delta),
+                    null,
+                    prefix
+            );
+        }
+    }
+    public void closeTo(long expected, long delta) {
+        closeTo(expected, delta, null);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public void members(String prefix, Object... members) {
+        // a single primitive array cannot be passed as varargs, it ends up wrapped in an Object[]
+        final Object subset = members.length == 1 && PrimitiveArrays.isPrimitiveArray(members[0])? members[0] : members;
+        final MemberComparison comparison = Elements.isLazy(object)?
+                MemberComparison.compare(Elements.iterator(object), subset, getContains())
+                : MemberComparison.compare(object, subset);
+        if (getContains()) {
+            if (!passes(comparison.isSuperset())) {
+                throw failure(
+                        "expected #{this} to be a superset of #{exp}, but it is missing #{act}",
+                        "expected #{this} to not be a superset of #{exp}",
+                        subset,
+                        getNot()? null : comparison.getMissing(),
+                        prefix
+                );
             }
         } else {
-            throw new AssertionError(getMessage("expected #{this} to be a Runnable or Callable"));
+            if (!passes(comparison.isSame())) {
+                throw failure(
+                        "expected #{this} to have the same members as #{exp}, but #{act}",
+                        "expected #{this} to not have the same members as #{exp}",
+                        subset,
+                        comparison,
+                        prefix
+                );
+            }
         }
-        final Object changed = nextProperty(bean, property);
+    }
+    public void members(Object... subset) {
+        members(null, subset);
+    }
 
-        doAssert(
-                () -> initial == null ? changed != null : !initial.equals(changed),
-                "expected ." + property + " to change",
-                "expected ." + property + " to not change"
-        );
+
+
+    public Assertion change(Object bean, String property, String prefix) {
+        final PropertyPath path = PropertyPath.of(property);
+        final Object initial = probeProperty(bean, path);
+        runSubject(prefix);
+        final Object changed = probeProperty(bean, path);
+
+        if (!passes(initial == null ? changed != null : !initial.equals(changed))) {
+            throw failure("expected ." + property + " to change", "expected ." + property + " to not change", prefix);
+        }
         return Caj.expect(object);
     }
     public Assertion change(Object bean, String property) {
@@ -1802,24 +2149,12 @@ public class Assertion {
 
 
     private Assertion assertIncDec(Object bean, String property, String prefix, boolean inc) {
-        this.prefix = prefix;
-        Caj.expect(bean).to.have.property(property);
-
-        final Object initial = nextProperty(bean, property);
+        final PropertyPath path = PropertyPath.of(property);
+        final Object initial = probeProperty(bean, path);
         Caj.expect(initial).to.be.a(Number.class);
 
-        if (object instanceof Runnable) {
-            ((Runnable)object).run();
-        } else if (object instanceof Callable) {
-            try {
-                ((Callable) object).call();
-            } catch (Exception e) {
-                throw new AssertionError(getMessage("Calling #{this} threw an exception"), e);
-            }
-        } else {
-            throw new AssertionError(getMessage("expected #{this} to be a Runnable or Callable"));
-        }
-        final Object changed = nextProperty(bean, property);
+        runSubject(prefix);
+        final Object changed = probeProperty(bean, path);
         Caj.expect(changed).to.be.a(Number.class);
 
         final boolean ok;
@@ -1833,13 +2168,10 @@ public class Assertion {
             ok = inc? changedValue > initialValue : changedValue < initialValue;
         }
 
-        final String verb = inc? "increase" : "decrease";
-
-        doAssert(
-                () -> ok,
-                "expected ." + property + " to " + verb,
-                "expected ." + property + " to not " + verb
-        );
+        if (!passes(ok)) {
+            final String verb = inc? "increase" : "decrease";
+            throw failure("expected ." + property + " to " + verb, "expected ." + property + " to not " + verb, prefix);
+        }
         return Caj.expect(object);
     }
     public Assertion increase(Object bean, String property, String prefix) {
@@ -1869,121 +2201,600 @@ public class Assertion {
 
 
 
+    /**
+     * Asserts that running the target changes the value returned by a probe. The probe is
+     * called once before and once after the target is run.
+     *
+     * <pre>
+     *     final Runnable addTea = () -> list.add("tea");
+     *     expect(addTea).to.change(list::size);
+     * </pre>
+     *
+     * @param probe returns the value that is expected to change
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an Assertion on the target
+     */
+    public Assertion change(Supplier<?> probe, String prefix) {
+        final Object initial = probe.get();
+        runSubject(prefix);
+        final Object changed = probe.get();
+        if (!passes(!Objects.equals(initial, changed))) {
+            throw failure(
+                    "expected the probed value to change, but it stayed #{act}",
+                    "expected the probed value to not change, but it changed from #{exp} to #{act}",
+                    initial,
+                    changed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+    public Assertion change(Supplier<?> probe) {
+        return change(probe, null);
+    }
+    public Assertion changes(Supplier<?> probe, String prefix) {
+        return change(probe, prefix);
+    }
+    public Assertion changes(Supplier<?> probe) {
+        return change(probe, null);
+    }
+
+    /**
+     * Asserts that running the target changes the values of all probes. All probes are
+     * called before the target is run and again afterwards. With the not-flag set, none
+     * of the values may change. All probes that fail are reported in a single error.
+     *
+     * <pre>
+     *     final Runnable ship = order::ship;
+     *     expect(ship).to.changeAll(Arrays.&lt;Supplier&lt;?&gt;&gt;asList(order::getState, order::getShippedAt));
+     * </pre>
+     *
+     * @param probes return the values that are expected to change
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an Assertion on the target
+     */
+    public Assertion changeAll(List<? extends Supplier<?>> probes, String prefix) {
+        final int n = probes.size();
+        final Object[] initial = new Object[n];
+        for (int i = 0; i < n; i++) {
+            initial[i] = probes.get(i).get();
+        }
+        runSubject(prefix);
+        ProbeResults failed = null;
+        for (int i = 0; i < n; i++) {
+            final Object changed = probes.get(i).get();
+            if (!passes(!Objects.equals(initial[i], changed))) {
+                if (failed == null) {
+                    failed = new ProbeResults();
+                }
+                failed.add(i, initial[i], changed);
+            }
+        }
+        if (failed != null) {
+            throw failure(
+                    "expected the probed values to change, but #{act}",
+                    "expected the probed values to not change, but #{act}",
+                    null,
+                    failed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+    public Assertion changeAll(List<? extends Supplier<?>> probes) {
+        return changeAll(probes, null);
+    }
+    public Assertion changesAll(List<? extends Supplier<?>> probes, String prefix) {
+        return changeAll(probes, prefix);
+    }
+    public Assertion changesAll(List<? extends Supplier<?>> probes) {
+        return changeAll(probes, null);
+    }
+
+    /**
+     * Asserts that running the target changes the values of all probes of primitive {@code long}s. The values
+     * are kept in a primitive array, no value is boxed unless it is part of a failure message.
+     *
+     * <pre>
+     *     final Runnable transfer = () -> bank.transfer(from, to, 100);
+     *     expect(transfer).to.changeAll(from::getBalance, to::getBalance);
+     * </pre>
+     *
+     * @param probes return the values that are expected to change
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an Assertion on the target
+     * @see #changeAll(List, String)
+     */
+    public Assertion changeAll(LongSupplier[] probes, String prefix) {
+        return assertProbes(probes, 0, "change", prefix);
+    }
+    public Assertion changeAll(LongSupplier... probes) {
+        return changeAll(probes, null);
+    }
+    public Assertion changesAll(LongSupplier[] probes, String prefix) {
+        return changeAll(probes, prefix);
+    }
+    public Assertion changesAll(LongSupplier... probes) {
+        return changeAll(probes, null);
+    }
+    /** Same as {@link #changeAll(LongSupplier[], String)}, but all values have to increase. */
+    public Assertion increaseAll(LongSupplier[] probes, String prefix) {
+        return assertProbes(probes, 1, "increase", prefix);
+    }
+    public Assertion increaseAll(LongSupplier... probes) {
+        return increaseAll(probes, null);
+    }
+    public Assertion increasesAll(LongSupplier[] probes, String prefix) {
+        return increaseAll(probes, prefix);
+    }
+    public Assertion increasesAll(LongSupplier... probes) {
+        return increaseAll(probes, null);
+    }
+    /** Same as {@link #changeAll(LongSupplier[], String)}, but all values have to decrease. */
+    public Assertion decreaseAll(LongSupplier[] probes, String prefix) {
+        return assertProbes(probes, -1, "decrease", prefix);
+    }
+    public Assertion decreaseAll(LongSupplier... probes) {
+        return decreaseAll(probes, null);
+    }
+    public Assertion decreasesAll(LongSupplier[] probes, String prefix) {
+        return decreaseAll(probes, prefix);
+    }
+    public Assertion decreasesAll(LongSupplier... probes) {
+        return decreaseAll(probes, null);
+    }
+    /** Same as {@link #changeAll(LongSupplier[], String)} for probes of {@code double}s. */
+    public Assertion changeAll(DoubleSupplier[] probes, String prefix) {
+        return assertProbes(probes, 0, "change", prefix);
+    }
+    public Assertion changeAll(DoubleSupplier... probes) {
+        return changeAll(probes, null);
+    }
+    public Assertion changesAll(DoubleSupplier[] probes, String prefix) {
+        return changeAll(probes, prefix);
+    }
+    public Assertion changesAll(DoubleSupplier... probes) {
+        return changeAll(probes, null);
+    }
+    /** Same as {@link #increaseAll(LongSupplier[], String)} for probes of {@code double}s. */
+    public Assertion increaseAll(DoubleSupplier[] probes, String prefix) {
+        return assertProbes(probes, 1, "increase", prefix);
+    }
+    public Assertion increaseAll(DoubleSupplier... probes) {
+        return increaseAll(probes, null);
+    }
+    public Assertion increasesAll(DoubleSupplier[] probes, String prefix) {
+        return increaseAll(probes, prefix);
+    }
+    public Assertion increasesAll(DoubleSupplier... probes) {
+        return increaseAll(probes, null);
+    }
+    /** Same as {@link #decreaseAll(LongSupplier[], String)} for probes of {@code double}s. */
+    public Assertion decreaseAll(DoubleSupplier[] probes, String prefix) {
+        return assertProbes(probes, -1, "decrease", prefix);
+    }
+    public Assertion decreaseAll(DoubleSupplier... probes) {
+        return decreaseAll(probes, null);
+    }
+    public Assertion decreasesAll(DoubleSupplier[] probes, String prefix) {
+        return decreaseAll(probes, prefix);
+    }
+    public Assertion decreasesAll(DoubleSupplier... probes) {
+        return decreaseAll(probes, null);
+    }
+
+    /**
+     * Snapshots all probes, runs the target and compares the new values with the snapshots.
+     *
+     * @param direction 1 if the values have to increase, -1 if they have to decrease, 0 if they have to change
+     */
+    private Assertion assertProbes(LongSupplier[] probes, int direction, String verb, String prefix) {
+        final long[] initial = new long[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            initial[i] = probes[i].getAsLong();
+        }
+        runSubject(prefix);
+        ProbeResults failed = null;
+        for (int i = 0; i < probes.length; i++) {
+            final long changed = probes[i].getAsLong();
+            final int comparison = Long.compare(changed, initial[i]);
+            if (!passes(direction == 0? comparison != 0 : comparison == direction)) {
+                if (failed == null) {
+                    failed = new ProbeResults();
+                }
+                failed.add(i, initial[i], changed);
+            }
+        }
+        return assertProbeResults(failed, verb, prefix);
+    }
+
+    private Assertion assertProbes(DoubleSupplier[] probes, int direction, String verb, String prefix) {
+        final double[] initial = new double[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            initial[i] = probes[i].getAsDouble();
+        }
+        runSubject(prefix);
+        ProbeResults failed = null;
+        for (int i = 0; i < probes.length; i++) {
+            final double changed = probes[i].getAsDouble();
+            // the same equality as Double.equals(), as used by changeAll(List) for boxed values
+            final boolean passed = direction == 0? Double.doubleToLongBits(changed) != Double.doubleToLongBits(initial[i])
+                    : direction > 0? changed > initial[i] : changed < initial[i];
+            if (!passes(passed)) {
+                if (failed == null) {
+                    failed = new ProbeResults();
+                }
+                failed.add(i, initial[i], changed);
+            }
+        }
+        return assertProbeResults(failed, verb, prefix);
+    }
+
+    private Assertion assertProbeResults(ProbeResults failed, String verb, String prefix) {
+        if (failed != null) {
+            throw failure(
+                    "expected the probed values to " + verb + ", but #{act}",
+                    "expected the probed values to not " + verb + ", but #{act}",
+                    null,
+                    failed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+
+    /**
+     * Asserts that running the target increases the value returned by a probe.
+     * The values are compared as primitives.
+     *
+     * <pre>
+     *     final Runnable increment = counter::incrementAndGet;
+     *     expect(increment).to.increase(counter::get);
+     * </pre>
+     *
+     * @param probe returns the value that is expected to increase
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an Assertion on the target
+     */
+    public Assertion increase(LongSupplier probe, String prefix) {
+        final long initial = probe.getAsLong();
+        runSubject(prefix);
+        final long changed = probe.getAsLong();
+        if (!passes(changed > initial)) {
+            throw failure(
+                    "expected the probed value to increase, but it went from #{exp} to #{act}",
+                    "expected the probed value to not increase, but it went from #{exp} to #{act}",
+                    initial,
+                    changed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+    public Assertion increase(LongSupplier probe) {
+        return increase(probe, null);
+    }
+    public Assertion increases(LongSupplier probe, String prefix) {
+        return increase(probe, prefix);
+    }
+    public Assertion increases(LongSupplier probe) {
+        return increase(probe, null);
+    }
+    /** Same as {@link #increase(LongSupplier, String)} for a probe of a {@code double}. */
+    public Assertion increase(DoubleSupplier probe, String prefix) {
+        final double initial = probe.getAsDouble();
+        runSubject(prefix);
+        final double changed = probe.getAsDouble();
+        if (!passes(changed > initial)) {
+            throw failure(
+                    "expected the probed value to increase, but it went from #{exp} to #{act}",
+                    "expected the probed value to not increase, but it went from #{exp} to #{act}",
+                    initial,
+                    changed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+    public Assertion increase(DoubleSupplier probe) {
+        return increase(probe, null);
+    }
+    public Assertion increases(DoubleSupplier probe, String prefix) {
+        return increase(probe, prefix);
+    }
+    public Assertion increases(DoubleSupplier probe) {
+        return increase(probe, null);
+    }
+
+    /**
+     * Asserts that running the target decreases the value returned by a probe.
+     * The values are compared as primitives.
+     *
+     * <pre>
+     *     final Runnable take = stock::take;
+     *     expect(take).to.decrease(stock::available);
+     * </pre>
+     *
+     * @param probe returns the value that is expected to decrease
+     * @param prefix A prefix that will be prepended to any error message generated by this assertion.
+     * @return an Assertion on the target
+     */
+    public Assertion decrease(LongSupplier probe, String prefix) {
+        final long initial = probe.getAsLong();
+        runSubject(prefix);
+        final long changed = probe.getAsLong();
+        if (!passes(changed < initial)) {
+            throw failure(
+                    "expected the probed value to decrease, but it went from #{exp} to #{act}",
+                    "expected the probed value to not decrease, but it went from #{exp} to #{act}",
+                    initial,
+                    changed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+    public Assertion decrease(LongSupplier probe) {
+        return decrease(probe, null);
+    }
+    public Assertion decreases(LongSupplier probe, String prefix) {
+        return decrease(probe, prefix);
+    }
+    public Assertion decreases(LongSupplier probe) {
+        return decrease(probe, null);
+    }
+    /** Same as {@link #decrease(LongSupplier, String)} for a probe of a {@code double}. */
+    public Assertion decrease(DoubleSupplier probe, String prefix) {
+        final double initial = probe.getAsDouble();
+        runSubject(prefix);
+        final double changed = probe.getAsDouble();
+        if (!passes(changed < initial)) {
+            throw failure(
+                    "expected the probed value to decrease, but it went from #{exp} to #{act}",
+                    "expected the probed value to not decrease, but it went from #{exp} to #{act}",
+                    initial,
+                    changed,
+                    prefix
+            );
+        }
+        return Caj.expect(object);
+    }
+    public Assertion decrease(DoubleSupplier probe) {
+        return decrease(probe, null);
+    }
+    public Assertion decreases(DoubleSupplier probe, String prefix) {
+        return decrease(probe, prefix);
+    }
+    public Assertion decreases(DoubleSupplier probe) {
+        return decrease(probe, null);
+    }
+
+    private void runSubject(String prefix) {
+        if (object instanceof Runnable) {
+            ((Runnable)object).run();
+        } else if (object instanceof Callable) {
+            try {
+                ((Callable) object).call();
+            } catch (Exception e) {
+                throw new AssertionError(getMessage("Calling #{this} threw an exception", prefix), e);
+            }
+        } else {
+            throw new AssertionError(getMessage("expected #{this} to be a Runnable or Callable", prefix));
+        }
+    }
+
+    private static Object probeProperty(Object bean, PropertyPath path) {
+        final Object value = path.get(bean);
+        if (value == PropertyAccessor.NO_PROPERTY) {
+            // fails with the usual message
+            Caj.expect(bean).to.have.property(path);
+        }
+        return value;
+    }
+
+
+
     private void assertEqual(Object expected, String prefix) {
         assertEqual(expected, prefix, null);
     }
     private void assertEqual(Object expected, String prefix, String op) {
-        this.prefix = prefix;
-        this.expected = expected;
-        op = op != null? op : "equal";
-        doAssert(
-                () -> expected == null? object == null : expected.equals(object),
-                "expected #{this} to " + op + " #{exp}",
-                "expected #{this} to not \" + op + \" #{exp}"
-        );
+        if (!passes(expected == null? object == null : expected.equals(object))) {
+            final DiffReport report = getNot()? null : DiffReport.of(object, expected, false);
+            final String message = op == null? "expected #{this} to equal #{exp}" : "expected #{this} to " + op + " #{exp}";
+            final String negatedMessage = op == null? "expected #{this} to not equal #{exp}" : "expected #{this} to not " + op + " #{exp}";
+            throw failure(report == null? message : message + "#{act}", negatedMessage, expected, report, prefix);
+        }
+    }
+
+    /**
+     * Returns the length, but counts the elements of streams, iterators, {@code Iterable}s and collections
+     * with an expensive {@code size()} only up to a limit. A comparison with {@code n} needs at most
+     * {@code n + 1} elements to be decided.
+     */
+    private Elements.Count getLength(long limit, String prefix) {
+        if (object instanceof Path) {
+            return Elements.Count.exact(FileContent.size((Path) object));
+        }
+        if (object instanceof Collection || Elements.isLazy(object)) {
+            return Elements.count(object, limit);
+        }
+        if (StreamContent.isStream(object)) {
+            return StreamContent.count(object, limit);
+        }
+        return Elements.Count.exact(getLength(prefix));
     }
 
-    private int getLength() {
+    private int getLength(String prefix) {
         final int size;
         if (object instanceof Collection) {
             size = ((Collection)object).size();
         } else if (object instanceof Map) {
             size = ((Map)object).size();
         } else if (object.getClass().isArray()) {
-            size = Array.getLength(object);
-        } else if (object instanceof String) {
-            size = ((String)object).length();
+            size = PrimitiveArrays.length(object);
+        } else if (object instanceof CharSequence) {
+            size = ((CharSequence)object).length();
+        } else if (object instanceof Path) {
+            size = (int) Math.min(Integer.MAX_VALUE, FileContent.size((Path) object));
+        } else if (object instanceof ByteBuffer) {
+            size = ((ByteBuffer)object).remaining();
+        } else if (Elements.isLazy(object)) {
+            size = (int) Math.min(Integer.MAX_VALUE, Elements.count(object, Long.MAX_VALUE).getValue());
+        } else if (StreamContent.isStream(object)) {
+            size = (int) Math.min(Integer.MAX_VALUE, StreamContent.count(object, Long.MAX_VALUE).getValue());
         } else {
-            throw new AssertionError(getMessage("expected #{this} to be an array, Collection, Map or String"));
+            throw new AssertionError(getMessage("expected #{this} to be an array, Collection, Map or String", prefix));
         }
         return size;
     }
 
-    private void doAssert(BooleanSupplier expr, String msg, String negateMsg) {
-        final boolean negate = getNot();
-        final boolean ok = negate? !expr.getAsBoolean() : expr.getAsBoolean();
-        if (!ok) {
-            final String message = getMessage(negate? negateMsg : msg);
-            throw new AssertionError(message);
-        }
+    boolean passes(boolean result) {
+        return result != getNot();
     }
 
-    private String getMessage(String message) {
-        message = message == null? "" : message;
-        message = message.replaceAll("#\\{this}",  formatValue(object).replaceAll("\\$", "\\\\\\$"));
-        message = message.replaceAll("#\\{act}", formatValue(actual).replaceAll("\\$", "\\\\\\$"));
-        message = message.replaceAll("#\\{exp}", formatValue(expected).replaceAll("\\$", "\\\\\\$"));
-        if (prefix != null) {
-            message = prefix + ": " + message;
+    AssertionError failure(String msg, String negateMsg, String prefix) {
+        return failure(msg, negateMsg, null, null, prefix);
+    }
+
+    /**
+     * Creates the error for a failed assertion. The messages are templates, the values
+     * for the placeholders {@code #{exp}} and {@code #{act}} are only formatted here.
+     */
+    AssertionError failure(String msg, String negateMsg, Object expected, Object actual, String prefix) {
+        return new AssertionError(getMessage(getNot()? negateMsg : msg, expected, actual, prefix));
+    }
+
+    private void doAssert(boolean result, String msg, String negateMsg, String prefix) {
+        doAssert(result, msg, negateMsg, null, null, prefix);
+    }
+
+    private void doAssert(boolean result, String msg, String negateMsg, Object expected, Object actual, String prefix) {
+        if (!passes(result)) {
+            throw failure(msg, negateMsg, expected, actual, prefix);
         }
-        return message;
     }
 
-    private String formatValue(Object value) {
-        if (value != null && value.getClass().isArray()) {
-            final int n = Array.getLength(value);
-            if (n == 0) {
-                return "[]";
-            }
-            final StringBuilder builder = new StringBuilder("[").append(formatValue(Array.get(value, 0)));
-            for (int i = 1; i < n; i++) {
-                builder.append(", ").append(formatValue(Array.get(value, i)));
-            }
-            builder.append("]");
-            return builder.toString();
+    String getMessage(String message, String prefix) {
+        return getMessage(message, null, null, prefix);
+    }
+
+    String getMessage(String message, Object expected, Object actual, String prefix) {
+        return MessageTemplate.of(message == null? "" : message).render(object, expected, actual, prefix);
+    }
+
+    static String formatValue(Object value) {
+        return ValueFormatter.getDefault().format(value);
+    }
+
+    /**
+     * Two values, which are formatted individually and joined with a separator
+     * when they are part of a failure message, e.g. the bounds of a range.
+     */
+    static final class Joined {
+        private final Object left;
+        private final String separator;
+        private final Object right;
+
+        Joined(Object left, String separator, Object right) {
+            this.left = left;
+            this.separator = separator;
+            this.right = right;
         }
-        if (value instanceof String) {
-            return "\"" + value + "\"";
+
+        @Override
+        public String toString() {
+            return formatValue(left) + separator + formatValue(right);
         }
-        if (value instanceof Pattern) {
-            final Pattern pattern = (Pattern)value;
-            final StringBuilder builder = new StringBuilder("/").append(value).append('/');
-            final int flags = pattern.flags();
-            if ((flags & Pattern.UNIX_LINES) != 0) {
-                builder.append('d');
-            }
-            if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
-                builder.append('i');
-            }
-            if ((flags & Pattern.COMMENTS) != 0) {
-                builder.append('x');
-            }
-            if ((flags & Pattern.MULTILINE) != 0) {
-                builder.append('m');
-            }
-            if ((flags & Pattern.DOTALL) != 0) {
-                builder.append('s');
-            }
-            if ((flags & Pattern.UNICODE_CASE) != 0) {
-                builder.append('u');
-            }
-            if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0) {
-                builder.append('U');
+    }
+
+    /**
+     * The properties that did not match in {@link #properties(Map, String)}, which are only
+     * formatted when they are part of a failure message.
+     */
+    private static final class PropertyMismatches {
+        private final List<PropertyPath> paths = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        private void add(PropertyPath path, Object value) {
+            paths.add(path);
+            values.add(value);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < paths.size(); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(formatValue(paths.get(i).toString()));
+                final Object value = values.get(i);
+                if (value == PropertyAccessor.NO_PROPERTY) {
+                    builder.append(" does not exist");
+                } else {
+                    builder.append(" was ").append(formatValue(value));
+                }
             }
             return builder.toString();
         }
-        return String.valueOf(value);
     }
 
-    private static class PathInfo {
-        public static final PathInfo NOT_FOUND = new PathInfo(null) {
-            public boolean exists() {
-                return false;
-            }
-        };
+    /**
+     * The probes that failed in {@link #changeAll(List, String)} and its primitive variants, which are only formatted
+     * when they are part of a failure message.
+     */
+    private static final class ProbeResults {
+        private final List<Object> results = new ArrayList<>();
 
-        private final Object value;
+        private void add(int index, Object initial, Object changed) {
+            results.add(index);
+            results.add(initial);
+            results.add(changed);
+        }
 
-        private PathInfo(Object value) {
-            this.value = value;
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < results.size(); i += 3) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                final Object initial = results.get(i + 1);
+                final Object changed = results.get(i + 2);
+                builder.append("probe ").append(results.get(i));
+                if (Objects.equals(initial, changed)) {
+                    builder.append(" stayed ").append(formatValue(changed));
+                } else {
+                    builder.append(" changed from ").append(formatValue(initial)).append(" to ").append(formatValue(changed));
+                }
+            }
+            return builder.toString();
         }
+    }
 
-        public boolean exists() {
-            return true;
+    /**
+     * A list of keys, which is only formatted when it is part of a failure message.
+     */
+    private static final class KeyList {
+        private final Collection<String> keys;
+        private final boolean any;
+
+        private KeyList(Collection<String> keys, boolean any) {
+            this.keys = keys;
+            this.any = any;
         }
 
-        public Object getValue() {
-            return value;
+        @Override
+        public String toString() {
+            final Iterator<String> iterator = keys.iterator();
+            if (keys.size() == 1) {
+                return "key " + formatValue(iterator.next());
+            }
+            final StringBuilder builder = new StringBuilder("keys ");
+            for (int i = keys.size() - 1; i > 0; i--) {
+                builder.append(formatValue(iterator.next())).append(", ");
+            }
+            return builder.append(any? "or " : "and ").append(formatValue(iterator.next())).toString();
         }
     }
 }
@@ -0,0 +1,178 @@
+package com.netopyr.caj;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Comparison, search and formatting of bytes in {@code ByteBuffer}s. Buffers are accessed with absolute
+ * indexes relative to their position, their position and limit are never changed, and direct buffers are
+ * read in place.
+ */
+final class Bytes {
+
+    /** The number of bytes shown before and after an offset in a window. */
+    static final int WINDOW = 16;
+
+    private static final int TABLE_SIZE = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Bytes() {}
+
+    /**
+     * Finds the first index at which two buffers differ. The remaining bytes of both buffers are compared.
+     *
+     * @return the index relative to the positions, the smaller number of remaining bytes if one buffer
+     * is a prefix of the other, or -1 if the buffers have the same content
+     */
+    static int mismatch(ByteBuffer a, ByteBuffer b) {
+        final int length = Math.min(a.remaining(), b.remaining());
+        final int offsetA = a.position();
+        final int offsetB = b.position();
+        int i = 0;
+        if (a.order() == b.order()) {
+            // eight bytes at a time, the order does not matter as long as it is the same
+            for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                if (a.getLong(offsetA + i) != b.getLong(offsetB + i)) {
+                    break;
+                }
+            }
+        }
+        for (; i < length; i++) {
+            if (a.get(offsetA + i) != b.get(offsetB + i)) {
+                return i;
+            }
+        }
+        return a.remaining() == b.remaining()? -1 : length;
+    }
+
+    /**
+     * Finds the first occurrence of a sequence of bytes with the Boyer-Moore-Horspool algorithm.
+     *
+     * @return the index relative to the position of the buffer or -1 if the buffer does not contain the bytes
+     */
+    static int indexOf(ByteBuffer haystack, byte[] needle) {
+        final int m = needle.length;
+        final int n = haystack.remaining();
+        final int offset = haystack.position();
+        if (m == 0) {
+            return 0;
+        }
+        final int[] shift = new int[TABLE_SIZE];
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[needle[i] & 0xFF] = m - 1 - i;
+        }
+        final byte last = needle[m - 1];
+        int i = 0;
+        while (i <= n - m) {
+            final byte b = haystack.get(offset + i + m - 1);
+            if (b == last && matchesAt(haystack, offset + i, needle)) {
+                return i;
+            }
+            i += shift[b & 0xFF];
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(ByteBuffer haystack, int index, byte[] needle) {
+        for (int j = 0; j < needle.length - 1; j++) {
+            if (haystack.get(index + j) != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a read-only view of the remaining bytes of a {@code ByteBuffer} or of a {@code byte[]},
+     * neither of them is copied.
+     */
+    static ByteBuffer asBuffer(Object bytes) {
+        return bytes instanceof byte[]? ByteBuffer.wrap((byte[]) bytes).asReadOnlyBuffer() : ((ByteBuffer) bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return {@code true} if the value is a {@code ByteBuffer} or a {@code byte[]}
+     */
+    static boolean isBytes(Object value) {
+        return value instanceof byte[] || value instanceof ByteBuffer;
+    }
+
+    /**
+     * Describes where two sequences of bytes differ, e.g. {@code "they differ at offset 20 (sizes 40 and 42)"}.
+     */
+    static String describe(long offset, long actualSize, long expectedSize) {
+        final String description = "they differ at offset " + offset;
+        return actualSize == expectedSize? description : description + " (sizes " + actualSize + " and " + expectedSize + ")";
+    }
+
+    /**
+     * @return the offset of the first byte shown in a window around an offset
+     */
+    static long windowStart(long offset) {
+        return Math.max(0, offset - WINDOW);
+    }
+
+    /**
+     * Formats one line of a hex dump, e.g. {@code "actual   0000001a  61 62 63  |abc|"}.
+     *
+     * @param label the label in front of the line
+     * @param start the offset of the first byte
+     * @param bytes the buffer that contains the bytes of the line between its position and limit
+     * @return the formatted line
+     */
+    static String hexLine(String label, long start, ByteBuffer bytes) {
+        final StringBuilder hex = new StringBuilder();
+        final StringBuilder text = new StringBuilder();
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            final int b = bytes.get(i) & 0xFF;
+            hex.append(' ').append(HEX[b >>> 4]).append(HEX[b & 0xF]);
+            text.append(b >= 0x20 && b < 0x7F? (char) b : '.');
+        }
+        return String.format("%-9s%08x %s  |%s|", label, start, hex, text);
+    }
+
+    /**
+     * The first difference between two buffers, which is only formatted when it is part of a failure message.
+     */
+    static final class Difference {
+        private final ByteBuffer actual;
+        private final ByteBuffer expected;
+        private final int offset;
+
+        Difference(ByteBuffer actual, ByteBuffer expected, int offset) {
+            this.actual = actual;
+            this.expected = expected;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return describe(offset, actual.remaining(), expected.remaining()) + window(actual, expected, offset, 0);
+        }
+    }
+
+    /**
+     * Formats the bytes of two buffers around the first difference.
+     *
+     * @param actual the actual bytes
+     * @param expected the expected bytes
+     * @param offset the index of the first difference, relative to the positions
+     * @param base the offset of the buffers' positions that is shown in the hex dump
+     * @return two lines of hex dump, each of them starts with a line break
+     */
+    static String window(ByteBuffer actual, ByteBuffer expected, int offset, long base) {
+        final int start = (int) windowStart(offset);
+        return "\n" + hexLine("actual", base + start, slice(actual, start, offset + WINDOW))
+                + "\n" + hexLine("expected", base + start, slice(expected, start, offset + WINDOW));
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        final ByteBuffer slice = buffer.duplicate();
+        // through Buffer, the covariant overrides of ByteBuffer do not exist in Java 8
+        ((Buffer) slice).limit(Math.min(buffer.limit(), buffer.position() + to));
+        ((Buffer) slice).position(Math.min(slice.limit(), buffer.position() + from));
+        return slice;
+    }
+}
@@ -1,11 +1,43 @@
 package com.netopyr.caj;
 
-import java.util.EnumSet;
-
 public class Caj {
 
     public static Assertion expect(Object object) {
-        return new Assertion(object, EnumSet.noneOf(Assertion.Flags.class));
+        return Assertion.create(object);
+    }
+
+    public static IntAssertion expect(int value) {
+        return IntAssertion.create(value);
+    }
+
+    public static LongAssertion expect(long value) {
+        return LongAssertion.create(value);
+    }
+
+    public static DoubleAssertion expect(double value) {
+        return DoubleAssertion.create(value);
+    }
+
+    // The following overloads keep the boxed type of the subject, which would otherwise be widened to int or double
+
+    public static Assertion expect(byte value) {
+        return Assertion.create(value);
+    }
+
+    public static Assertion expect(short value) {
+        return Assertion.create(value);
+    }
+
+    public static Assertion expect(char value) {
+        return Assertion.create(value);
+    }
+
+    public static Assertion expect(float value) {
+        return Assertion.create(value);
+    }
+
+    public static PropertyPath path(String path) {
+        return PropertyPath.of(path);
     }
 
     public static void fail(String message) {
@@ -0,0 +1,356 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Compares arrays, collections and maps deeply. Nested structures are traversed with an explicit
+ * work stack, so the depth of a structure is not limited by the size of the call stack. The stack holds one
+ * frame per nested container, which iterates over its elements, so flat values are compared without
+ * allocations per element.
+ *
+ * <p>Arrays are equal if their elements are deeply equal, primitive and boxed elements can be mixed.
+ * Lists and other collections that are not sets are compared element by element in iteration order,
+ * maps by their keys. Sets and all other values are compared with {@code equals()}. Every pair of
+ * objects is compared only once, which makes the comparison of cyclic and shared structures terminate.
+ * Large arrays and random-access lists are compared in parallel if {@link ParallelEquality} is enabled.
+ */
+final class DeepEquals {
+
+    private DeepEquals() {}
+
+    /**
+     * Compares two values deeply.
+     *
+     * @param actual the actual value
+     * @param expected the expected value
+     * @return the first difference or {@code null} if the values are deeply equal
+     */
+    static Difference compare(Object actual, Object expected) {
+        return compare(actual, expected, ParallelEquality.getDefault());
+    }
+
+    /**
+     * Returns {@code true} if two elements are deeply equal, nested structures are compared sequentially.
+     */
+    static boolean same(Object actual, Object expected) {
+        if (actual == expected) {
+            return true;
+        }
+        if (actual == null || expected == null) {
+            return false;
+        }
+        if (!isContainer(actual) || !isContainer(expected)) {
+            return actual.equals(expected);
+        }
+        return compare(actual, expected, null) == null;
+    }
+
+    private static boolean isContainer(Object value) {
+        return value instanceof Collection || value instanceof Map || value.getClass().isArray();
+    }
+
+    private static Difference compare(Object actual, Object expected, ParallelEquality parallel) {
+        final Deque<Frame> stack = new ArrayDeque<>();
+        final Set<IdentityPair> visited = new HashSet<>();
+
+        Difference difference = null;
+        if (parallel != null && actual != expected && isIndexed(actual, expected)) {
+            final int n = length(actual);
+            if (n != length(expected)) {
+                return Difference.size(new Frame(null, -1, null, actual, expected), n, length(expected));
+            }
+            if (parallel.appliesTo(n)) {
+                final int index = parallel.mismatch(actual, expected, n);
+                if (index < 0) {
+                    return null;
+                }
+                // only the first differing element is compared again to find the path to the difference
+                visited.add(new IdentityPair(actual, expected));
+                final Frame root = new Frame(null, -1, null, actual, expected);
+                difference = visit(root, index, null, element(actual, index), element(expected, index), stack, visited);
+            } else {
+                difference = visit(null, -1, null, actual, expected, stack, visited);
+            }
+        } else {
+            difference = visit(null, -1, null, actual, expected, stack, visited);
+        }
+
+        while (difference == null && !stack.isEmpty()) {
+            final Frame frame = stack.peek();
+            if (frame.map != null) {
+                if (!frame.entries.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                final Map.Entry<?, ?> entry = frame.entries.next();
+                final Object key = entry.getKey();
+                difference = visit(frame, -1, key, frame.map.get(key), entry.getValue(), stack, visited);
+            } else if (frame.actualElements != null) {
+                if (!frame.actualElements.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                difference = visit(frame, frame.next++, null, frame.actualElements.next(), frame.expectedElements.next(),
+                        stack, visited);
+            } else {
+                if (frame.next == frame.length) {
+                    stack.pop();
+                    continue;
+                }
+                final int i = frame.next++;
+                difference = frame.actual instanceof Object[] && frame.expected instanceof Object[]
+                        ? visit(frame, i, null, ((Object[]) frame.actual)[i], ((Object[]) frame.expected)[i], stack, visited)
+                        : visit(frame, i, null, Array.get(frame.actual, i), Array.get(frame.expected, i), stack, visited);
+            }
+        }
+        return difference;
+    }
+
+    /**
+     * Compares a pair of values. Values that are not containers are compared right away, a frame is only
+     * created for them if they differ. For a pair of containers, a frame that iterates over their elements
+     * is pushed onto the stack.
+     *
+     * @return the difference or {@code null} if the values are equal or their elements are compared later
+     */
+    private static Difference visit(Frame parent, int index, Object key, Object a, Object e,
+                                    Deque<Frame> stack, Set<IdentityPair> visited) {
+        if (a == e) {
+            return null;
+        }
+        if (a == null || e == null) {
+            return Difference.value(new Frame(parent, index, key, a, e), a, e);
+        }
+        final boolean arrays = a.getClass().isArray() && e.getClass().isArray();
+        final boolean sequences = a instanceof Collection && e instanceof Collection && !(a instanceof Set) && !(e instanceof Set);
+        final boolean maps = a instanceof Map && e instanceof Map;
+        if (!arrays && !sequences && !maps) {
+            return a.equals(e)? null : Difference.value(new Frame(parent, index, key, a, e), a, e);
+        }
+        if (!visited.add(new IdentityPair(a, e))) {
+            // compared before or currently being compared further up in a cycle
+            return null;
+        }
+
+        final Frame frame = new Frame(parent, index, key, a, e);
+        if (arrays) {
+            return startArray(frame, stack);
+        } else if (sequences) {
+            final Collection<?> actualElements = (Collection<?>) a;
+            final Collection<?> expectedElements = (Collection<?>) e;
+            if (actualElements.size() != expectedElements.size()) {
+                return Difference.size(frame, actualElements.size(), expectedElements.size());
+            }
+            frame.actualElements = actualElements.iterator();
+            frame.expectedElements = expectedElements.iterator();
+        } else {
+            final Map<?, ?> actualMap = (Map<?, ?>) a;
+            final Map<?, ?> expectedMap = (Map<?, ?>) e;
+            if (actualMap.size() != expectedMap.size()) {
+                return Difference.size(frame, actualMap.size(), expectedMap.size());
+            }
+            // a missing key is reported before any different value
+            for (final Object expectedKey : expectedMap.keySet()) {
+                if (!actualMap.containsKey(expectedKey)) {
+                    return Difference.missingKey(frame, expectedKey);
+                }
+            }
+            frame.map = actualMap;
+            frame.entries = expectedMap.entrySet().iterator();
+        }
+        stack.push(frame);
+        return null;
+    }
+
+    private static boolean isIndexed(Object actual, Object expected) {
+        return (actual instanceof List && actual instanceof RandomAccess && expected instanceof List && expected instanceof RandomAccess)
+                || (actual != null && expected != null && actual.getClass().isArray() && expected.getClass().isArray());
+    }
+
+    private static int length(Object indexed) {
+        return indexed instanceof List? ((List<?>) indexed).size() : Array.getLength(indexed);
+    }
+
+    private static Object element(Object indexed, int index) {
+        return indexed instanceof List? ((List<?>) indexed).get(index) : Array.get(indexed, index);
+    }
+
+    /**
+     * Compares arrays of bytes and arrays of the same primitive type right away, other arrays are pushed
+     * to compare their elements one by one.
+     */
+    private static Difference startArray(Frame frame, Deque<Frame> stack) {
+        final Object a = frame.actual;
+        final Object e = frame.expected;
+        final int n = PrimitiveArrays.length(a);
+        if (n != PrimitiveArrays.length(e)) {
+            return Difference.size(frame, n, PrimitiveArrays.length(e));
+        }
+        if (a instanceof byte[] && e instanceof byte[]) {
+            final int index = Bytes.mismatch(ByteBuffer.wrap((byte[]) a), ByteBuffer.wrap((byte[]) e));
+            if (index < 0) {
+                return null;
+            }
+            final Object elementA = ((byte[]) a)[index];
+            final Object elementE = ((byte[]) e)[index];
+            return Difference.value(new Frame(frame, index, null, elementA, elementE), elementA, elementE);
+        }
+        if (PrimitiveArrays.isPrimitiveArray(a) && a.getClass() == e.getClass()) {
+            if (PrimitiveArrays.equals(a, e)) {
+                return null;
+            }
+            // only reached on failure, boxing is fine here
+            for (int i = 0; i < n; i++) {
+                final Object elementA = Array.get(a, i);
+                final Object elementE = Array.get(e, i);
+                if (!elementA.equals(elementE)) {
+                    return Difference.value(new Frame(frame, i, null, elementA, elementE), elementA, elementE);
+                }
+            }
+            return null;
+        }
+        frame.length = n;
+        stack.push(frame);
+        return null;
+    }
+
+    /**
+     * A pair of values, linked to the pair it is part of. The frame of a pair of containers also iterates
+     * over their elements, frames of other values are only created to describe a difference.
+     */
+    private static final class Frame {
+        private final Frame parent;
+        private final int index;
+        private final Object key;
+        private final Object actual;
+        private final Object expected;
+
+        /** The index of the next element of arrays and collections. */
+        private int next;
+        /** The length of arrays. */
+        private int length;
+        private Iterator<?> actualElements;
+        private Iterator<?> expectedElements;
+        private Map<?, ?> map;
+        private Iterator<? extends Map.Entry<?, ?>> entries;
+
+        private Frame(Frame parent, int index, Object key, Object actual, Object expected) {
+            this.parent = parent;
+            this.index = index;
+            this.key = key;
+            this.actual = actual;
+            this.expected = expected;
+        }
+    }
+
+    private static final class IdentityPair {
+        private final Object first;
+        private final Object second;
+
+        private IdentityPair(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IdentityPair)) {
+                return false;
+            }
+            final IdentityPair other = (IdentityPair) o;
+            return first == other.first && second == other.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(first) + System.identityHashCode(second);
+        }
+    }
+
+    /**
+     * The first difference that was found, which is only formatted when it is part of a failure message.
+     */
+    static final class Difference {
+        private final Frame frame;
+        private final String description;
+        private final Object[] values;
+
+        private Difference(Frame frame, String description, Object... values) {
+            this.frame = frame;
+            this.description = description;
+            this.values = values;
+        }
+
+        private static Difference value(Frame frame, Object actual, Object expected) {
+            return new Difference(frame, "it has %s instead of %s", actual, expected);
+        }
+
+        private static Difference size(Frame frame, int actual, int expected) {
+            return new Difference(frame, "it has %d elements instead of %d", actual, expected);
+        }
+
+        private static Difference missingKey(Frame frame, Object key) {
+            return new Difference(frame, "the key %s is missing", key);
+        }
+
+        /**
+         * @return the path to the difference, e.g. {@code [3].items[17]}, or an empty String
+         * if the values differ at the top level
+         */
+        String getPath() {
+            final List<Frame> frames = new ArrayList<>();
+            for (Frame current = frame; current.parent != null; current = current.parent) {
+                frames.add(current);
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (int i = frames.size() - 1; i >= 0; i--) {
+                final Frame current = frames.get(i);
+                if (current.index >= 0) {
+                    builder.append('[').append(current.index).append(']');
+                } else if (current.key instanceof String && isIdentifier((String) current.key)) {
+                    if (builder.length() > 0) {
+                        builder.append('.');
+                    }
+                    builder.append((String) current.key);
+                } else {
+                    builder.append('[').append(Assertion.formatValue(current.key)).append(']');
+                }
+            }
+            return builder.toString();
+        }
+
+        private static boolean isIdentifier(String key) {
+            if (key.isEmpty() || !Character.isJavaIdentifierStart(key.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < key.length(); i++) {
+                if (!Character.isJavaIdentifierPart(key.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            final Object[] formatted = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                formatted[i] = values[i] instanceof Integer? values[i] : Assertion.formatValue(values[i]);
+            }
+            final String path = getPath();
+            final String message = String.format(description, formatted);
+            return path.isEmpty()? message : "at " + path + " " + message;
+        }
+    }
+}
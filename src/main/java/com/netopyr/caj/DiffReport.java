@@ -0,0 +1,216 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A report of the differences between two large lists, arrays or maps, which is appended to the failure
+ * message of {@code equal} and {@code eql}. The report is only computed when the message is formatted.
+ *
+ * <p>Maps are compared key by key, the report lists removed, added and changed entries. Lists and arrays
+ * are compared with Myers' diff algorithm, the report lists the elements that have been removed from
+ * or added to the expected elements. The computation gives up after {@value #MAX_EDITS} differences or
+ * {@value #MAX_MILLIS} milliseconds, and at most {@value #MAX_LINES} differences are shown.
+ */
+final class DiffReport {
+
+    /** Values with at most this many elements are shown in full, no report is needed. */
+    static final int MIN_SIZE = 10;
+
+    static final int MAX_EDITS = 1000;
+    static final long MAX_MILLIS = 200;
+    static final int MAX_LINES = 20;
+
+    private static final String HEADER = "\ndifferences (- expected, + actual):";
+
+    private final Object actual;
+    private final Object expected;
+    private final boolean deep;
+
+    private DiffReport(Object actual, Object expected, boolean deep) {
+        this.actual = actual;
+        this.expected = expected;
+        this.deep = deep;
+    }
+
+    /**
+     * Returns a report of the differences between two values.
+     *
+     * @param actual the actual value
+     * @param expected the expected value
+     * @param deep {@code true} if elements are compared deeply, {@code false} if they are compared with {@code equals()}
+     * @return the report or {@code null} if the values are neither two large lists or arrays nor two large maps
+     */
+    static DiffReport of(Object actual, Object expected, boolean deep) {
+        if (actual instanceof Map && expected instanceof Map) {
+            return Math.max(((Map<?, ?>) actual).size(), ((Map<?, ?>) expected).size()) > MIN_SIZE?
+                    new DiffReport(actual, expected, deep) : null;
+        }
+        if (isSequence(actual) && isSequence(expected)) {
+            return Math.max(size(actual), size(expected)) > MIN_SIZE? new DiffReport(actual, expected, deep) : null;
+        }
+        return null;
+    }
+
+    private static boolean isSequence(Object value) {
+        return (value instanceof Collection && !(value instanceof Set)) || (value != null && value.getClass().isArray());
+    }
+
+    private static int size(Object sequence) {
+        return sequence instanceof Collection? ((Collection<?>) sequence).size() : Array.getLength(sequence);
+    }
+
+    private static Object[] elements(Object sequence) {
+        if (sequence instanceof Collection) {
+            return ((Collection<?>) sequence).toArray();
+        } else if (sequence instanceof Object[]) {
+            return (Object[]) sequence;
+        }
+        final Object[] elements = new Object[Array.getLength(sequence)];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = Array.get(sequence, i);
+        }
+        return elements;
+    }
+
+    private boolean same(Object a, Object b) {
+        return deep? a == b || DeepEquals.compare(a, b) == null : Objects.equals(a, b);
+    }
+
+    @Override
+    public String toString() {
+        final List<String> lines = new ArrayList<>();
+        final int count = actual instanceof Map? diffMaps(lines) : diffSequences(lines);
+        if (count == 0) {
+            // e.g. a list and an array, or two arrays, which are not equal() even if their elements are
+            return "\nno element differs, the values differ only in type or identity";
+        }
+        final StringBuilder builder = new StringBuilder(HEADER);
+        if (count < 0) {
+            builder.append("\n  ").append(lines.get(0));
+            return builder.toString();
+        }
+        for (final String line : lines) {
+            builder.append("\n  ").append(line);
+        }
+        if (count > lines.size()) {
+            builder.append("\n  ... and ").append(count - lines.size()).append(" more");
+        }
+        return builder.toString();
+    }
+
+    private int diffMaps(List<String> lines) {
+        final Map<?, ?> a = (Map<?, ?>) actual;
+        final Map<?, ?> e = (Map<?, ?>) expected;
+        int count = 0;
+        for (final Map.Entry<?, ?> entry : e.entrySet()) {
+            final Object key = entry.getKey();
+            if (!a.containsKey(key)) {
+                count = addLine(lines, count, "- [" + Assertion.formatValue(key) + "] " + Assertion.formatValue(entry.getValue()));
+            } else {
+                final Object value = a.get(key);
+                if (!same(value, entry.getValue())) {
+                    count = addLine(lines, count, "~ [" + Assertion.formatValue(key) + "] " + Assertion.formatValue(value)
+                            + " instead of " + Assertion.formatValue(entry.getValue()));
+                }
+            }
+        }
+        for (final Map.Entry<?, ?> entry : a.entrySet()) {
+            if (!e.containsKey(entry.getKey())) {
+                count = addLine(lines, count, "+ [" + Assertion.formatValue(entry.getKey()) + "] " + Assertion.formatValue(entry.getValue()));
+            }
+        }
+        return count;
+    }
+
+    private static int addLine(List<String> lines, int count, String line) {
+        if (lines.size() < MAX_LINES) {
+            lines.add(line);
+        }
+        return count + 1;
+    }
+
+    /**
+     * Computes the shortest edit script that turns the expected into the actual elements. Returns the number
+     * of edits or -1 if the computation was aborted, in which case the only line explains why.
+     */
+    private int diffSequences(List<String> lines) {
+        final Object[] a = elements(actual);
+        final Object[] e = elements(expected);
+
+        // common prefix and suffix are not part of the edit script
+        int start = 0;
+        while (start < a.length && start < e.length && same(a[start], e[start])) {
+            start++;
+        }
+        int endA = a.length;
+        int endE = e.length;
+        while (endA > start && endE > start && same(a[endA - 1], e[endE - 1])) {
+            endA--;
+            endE--;
+        }
+
+        final int n = endE - start;
+        final int m = endA - start;
+        final int max = Math.min(n + m, MAX_EDITS);
+        final long deadline = System.nanoTime() + MAX_MILLIS * 1_000_000L;
+        final int[] v = new int[2 * max + 3];
+        final int offset = max + 1;
+        final List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= max; d++) {
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+            // the furthest x of every diagonal k after d - 1 edits, needed to backtrack
+            final int[] snapshot = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, snapshot, 0, snapshot.length);
+            trace.add(snapshot);
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && same(a[start + y], e[start + x])) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return backtrack(trace, n, m, a, e, start, lines);
+                }
+            }
+        }
+        lines.add("more than " + max + " differences or more than " + MAX_MILLIS
+                + " ms to find them, the first one is at [" + start + "]");
+        return -1;
+    }
+
+    private static int backtrack(List<int[]> trace, int n, int m, Object[] a, Object[] e, int start, List<String> lines) {
+        // edits are found from the end, an insertion is stored as its negated position - 1
+        final int[] edits = new int[trace.size() - 1];
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            final int[] v = trace.get(d);
+            final int k = x - y;
+            final boolean insertion = k == -d || (k != d && v[k - 1 + d] < v[k + 1 + d]);
+            final int previousK = insertion? k + 1 : k - 1;
+            final int previousX = v[previousK + d];
+            final int previousY = previousX - previousK;
+            edits[d - 1] = insertion? -(start + previousY) - 1 : start + previousX;
+            x = previousX;
+            y = previousY;
+        }
+        for (int i = 0; i < edits.length && lines.size() < MAX_LINES; i++) {
+            final int edit = edits[i];
+            lines.add(edit < 0? "+ [" + (-edit - 1) + "] " + Assertion.formatValue(a[-edit - 1])
+                    : "- [" + edit + "] " + Assertion.formatValue(e[edit]));
+        }
+        return edits.length;
+    }
+}
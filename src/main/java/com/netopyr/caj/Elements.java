@@ -0,0 +1,156 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.function.Predicate;
+import java.util.stream.BaseStream;
+
+/**
+ * Lazy access to the elements of arrays, {@code Iterable}s, {@code Iterator}s and {@code Stream}s.
+ * Elements are consumed one by one and only as far as needed. Iterators and streams can be consumed
+ * only once, an assertion on them uses them up.
+ */
+final class Elements {
+
+    /** Returned by {@link #find(Object, Predicate)} if no element matches. */
+    static final Object NONE = new Object();
+
+    private Elements() {}
+
+    /**
+     * @return {@code true} if the elements of the value can only be determined by consuming them,
+     * i.e. the value is a stream, an iterator or an {@code Iterable} that is not a {@code Collection}.
+     * A {@code Path} is not treated as the {@code Iterable} of its names.
+     */
+    static boolean isLazy(Object value) {
+        return value instanceof BaseStream || value instanceof Iterator
+                || (value instanceof Iterable && !(value instanceof Collection) && !(value instanceof Path));
+    }
+
+    /**
+     * @return {@code true} if the value is an array, an {@code Iterable}, an iterator or a stream
+     */
+    static boolean isSupported(Object value) {
+        return value != null && (value.getClass().isArray() || value instanceof Iterator || value instanceof BaseStream
+                || (value instanceof Iterable && !(value instanceof Path)));
+    }
+
+    /**
+     * Returns an iterator over the elements of an array, an {@code Iterable}, an iterator or a stream.
+     */
+    static Iterator<?> iterator(Object value) {
+        if (value instanceof Iterable) {
+            return ((Iterable<?>) value).iterator();
+        } else if (value instanceof Iterator) {
+            return (Iterator<?>) value;
+        } else if (value instanceof BaseStream) {
+            return ((BaseStream<?, ?>) value).iterator();
+        }
+        return new ArrayIterator(value);
+    }
+
+    /**
+     * Returns the first element that matches a predicate.
+     *
+     * @return the element or {@link #NONE} if no element matches
+     */
+    static Object find(Object value, Predicate<Object> predicate) {
+        final Iterator<?> iterator = iterator(value);
+        while (iterator.hasNext()) {
+            final Object element = iterator.next();
+            if (predicate.test(element)) {
+                return element;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Counts the elements, but stops counting at a limit.
+     *
+     * @param value an array, an {@code Iterable}, an iterator or a stream
+     * @param limit the maximum number of elements to consume
+     * @return the number of elements, which is exact if it is less than the limit or the size is known
+     * without counting
+     */
+    static Count count(Object value, long limit) {
+        if (value instanceof Collection && !hasExpensiveSize(value)) {
+            return new Count(((Collection<?>) value).size(), true);
+        } else if (value.getClass().isArray()) {
+            return new Count(Array.getLength(value), true);
+        }
+        final Iterator<?> iterator = iterator(value);
+        long count = 0;
+        while (count < limit && iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return new Count(count, count < limit || !iterator.hasNext());
+    }
+
+    /**
+     * @return {@code true} if {@code size()} of the collection traverses all elements
+     */
+    private static boolean hasExpensiveSize(Object collection) {
+        return collection instanceof ConcurrentLinkedQueue || collection instanceof ConcurrentLinkedDeque
+                || collection instanceof LinkedTransferQueue;
+    }
+
+    /**
+     * The number of elements that have been counted, which is shown as {@code "more than n"} in failure
+     * messages if counting was stopped early.
+     */
+    static final class Count {
+        private final long value;
+        private final boolean exact;
+
+        Count(long value, boolean exact) {
+            this.value = value;
+            this.exact = exact;
+        }
+
+        static Count exact(long value) {
+            return new Count(value, true);
+        }
+
+        /** @return the number of counted elements */
+        long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return exact? Long.toString(value) : "more than " + (value - 1);
+        }
+    }
+
+    private static final class ArrayIterator implements Iterator<Object> {
+        private final Object array;
+        private final int length;
+        private int index;
+
+        private ArrayIterator(Object array) {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < length;
+        }
+
+        @Override
+        public Object next() {
+            if (index >= length) {
+                throw new NoSuchElementException();
+            }
+            return Array.get(array, index++);
+        }
+    }
+}
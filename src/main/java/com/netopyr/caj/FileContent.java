@@ -0,0 +1,125 @@
+package com.netopyr.caj;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compares and searches the content of files. The files are mapped into memory chunk by chunk,
+ * no file is read onto the heap.
+ */
+final class FileContent {
+
+    /** The number of bytes that are mapped at once. */
+    static final int CHUNK = 1 << 26;
+
+    private FileContent() {}
+
+    /**
+     * @return the size of the file in bytes
+     */
+    static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the first offset at which two files differ.
+     *
+     * @return the offset, the size of the smaller file if it is a prefix of the other, or -1 if the files
+     * have the same content
+     */
+    static long mismatch(Path actual, Path expected) {
+        try (FileChannel a = FileChannel.open(actual, StandardOpenOption.READ);
+             FileChannel e = FileChannel.open(expected, StandardOpenOption.READ)) {
+            final long sizeA = a.size();
+            final long sizeE = e.size();
+            final long size = Math.min(sizeA, sizeE);
+            for (long position = 0; position < size; position += CHUNK) {
+                final long length = Math.min(CHUNK, size - position);
+                final int index = Bytes.mismatch(map(a, position, length), map(e, position, length));
+                if (index >= 0) {
+                    return position + index;
+                }
+            }
+            return sizeA == sizeE? -1 : size;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Searches a sequence of bytes in a file. Consecutive chunks overlap, so that occurrences that cross
+     * the border of a chunk are found.
+     *
+     * @return the offset of the first occurrence or -1 if the file does not contain the bytes
+     */
+    static long indexOf(Path file, byte[] bytes) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (bytes.length == 0) {
+                return 0;
+            }
+            for (long position = 0; position + bytes.length <= size; position += CHUNK) {
+                final long length = Math.min(CHUNK + bytes.length - 1L, size - position);
+                final int index = Bytes.indexOf(map(channel, position, length), bytes);
+                if (index >= 0) {
+                    return position + index;
+                }
+            }
+            return -1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * The first difference between two files, which is only read and formatted when it is part of
+     * a failure message.
+     */
+    static final class Difference {
+        private final Path actual;
+        private final Path expected;
+        private final long offset;
+
+        Difference(Path actual, Path expected, long offset) {
+            this.actual = actual;
+            this.expected = expected;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            final long start = Bytes.windowStart(offset);
+            return new StringBuilder(Bytes.describe(offset, size(actual), size(expected))).append("\n").append(Bytes.hexLine("actual", start, read(actual, start)))
+                    .append("\n").append(Bytes.hexLine("expected", start, read(expected, start)))
+                    .toString();
+        }
+
+        private ByteBuffer read(Path file, long start) {
+            final ByteBuffer window = ByteBuffer.allocate((int) (offset - start) + Bytes.WINDOW);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (window.hasRemaining() && channel.read(window, start + window.position()) > 0) {
+                    // read until the window is full or the end of the file is reached
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ((Buffer) window).flip();
+            return window;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.netopyr.caj;
+
+/**
+ * An {@link Assertion} on a primitive {@code int}. Every {@code int} widens to a {@code long}
+ * without loss, therefore the numeric comparisons of {@link LongAssertion} are used.
+ */
+public final class IntAssertion extends LongAssertion {
+
+    static IntAssertion create(int value) {
+        final Assertion[] lattice = new Assertion[FLAG_COMBINATIONS];
+        return (IntAssertion) completeModifierLattice(new IntAssertion(value, value, ALL_FLAGS, lattice), lattice);
+    }
+
+    private IntAssertion(int value, Object boxed, int flags, Assertion[] lattice) {
+        super(value, boxed, flags, lattice);
+    }
+
+    @Override
+    Assertion withFlags(int flags, Assertion[] lattice) {
+        return new IntAssertion((Integer) object, object, flags, lattice);
+    }
+}
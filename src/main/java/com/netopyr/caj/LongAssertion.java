@@ -0,0 +1,153 @@
+package com.netopyr.caj;
+
+/**
+ * An {@link Assertion} on a primitive {@code long}. The numeric comparisons work directly
+ * on the primitive value and do not allocate any objects unless they fail.
+ */
+public class LongAssertion extends Assertion {
+
+    private final long value;
+
+    static LongAssertion create(long value) {
+        final Assertion[] lattice = new Assertion[FLAG_COMBINATIONS];
+        return (LongAssertion) completeModifierLattice(new LongAssertion(value, value, ALL_FLAGS, lattice), lattice);
+    }
+
+    LongAssertion(long value, Object boxed, int flags, Assertion[] lattice) {
+        super(boxed, flags, lattice);
+        this.value = value;
+    }
+
+    @Override
+    Assertion withFlags(int flags, Assertion[] lattice) {
+        return new LongAssertion(value, object, flags, lattice);
+    }
+
+    @Override
+    public void within(double start, double finish, String prefix) {
+        if (getDoLength()) {
+            super.within(start, finish, prefix);
+        } else if (!passes(start <= value && value <= finish)) {
+            throw failure(
+                    "expected #{this} to be within #{exp}",
+                    "expected #{this} to not be within #{exp}",
+                    new Joined(start, "..", finish),
+                    null,
+                    prefix
+            );
+        }
+    }
+
+    @Override
+    public void within(long start, long finish, String prefix) {
+        if (getDoLength()) {
+            super.within(start, finish, prefix);
+        } else if (!passes(start <= value && value <= finish)) {
+            throw failure(
+                    "expected #{this} to be within #{exp}",
+                    "expected #{this} to not be within #{exp}",
+                    new Joined(start, "..", finish),
+                    null,
+                    prefix
+            );
+        }
+    }
+
+    @Override
+    public void above(double n, String prefix) {
+        if (getDoLength()) {
+            super.above(n, prefix);
+        } else if (!passes(value > n)) {
+            throw failure("expected #{this} to be above #{exp}", "expected #{this} to be at most #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void above(long n, String prefix) {
+        if (getDoLength()) {
+            super.above(n, prefix);
+        } else if (!passes(value > n)) {
+            throw failure("expected #{this} to be above #{exp}", "expected #{this} to be at most #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void least(double n, String prefix) {
+        if (getDoLength()) {
+            super.least(n, prefix);
+        } else if (!passes(value >= n)) {
+            throw failure("expected #{this} to be at least #{exp}", "expected #{this} to be below #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void least(long n, String prefix) {
+        if (getDoLength()) {
+            super.least(n, prefix);
+        } else if (!passes(value >= n)) {
+            throw failure("expected #{this} to be at least #{exp}", "expected #{this} to be below #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void below(double n, String prefix) {
+        if (getDoLength()) {
+            super.below(n, prefix);
+        } else if (!passes(value < n)) {
+            throw failure("expected #{this} to be below #{exp}", "expected #{this} to be at least #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void below(long n, String prefix) {
+        if (getDoLength()) {
+            super.below(n, prefix);
+        } else if (!passes(value < n)) {
+            throw failure("expected #{this} to be below #{exp}", "expected #{this} to be at least #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void most(double n, String prefix) {
+        if (getDoLength()) {
+            super.most(n, prefix);
+        } else if (!passes(value <= n)) {
+            throw failure("expected #{this} to be at most #{exp}", "expected #{this} to be above #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void most(long n, String prefix) {
+        if (getDoLength()) {
+            super.most(n, prefix);
+        } else if (!passes(value <= n)) {
+            throw failure("expected #{this} to be at most #{exp}", "expected #{this} to be above #{exp}", n, null, prefix);
+        }
+    }
+
+    @Override
+    public void closeTo(double expected, double delta, String prefix) {
+        if (!passes(Math.abs(expected - value) <= delta)) {
+            throw failure(
+                    "expected #{this} to be close to #{exp}",
+                    "expected #{this} not to be close to #{exp}",
+                    new Joined(expected, " +/- ", delta),
+                    null,
+                    prefix
+            );
+        }
+    }
+
+    @Override
+    public void closeTo(long expected, long delta, String prefix) {
+        if (!passes(Math.abs(expected - value) <= delta)) {
+            throw failure(
+                    "expected #{this} to be close to #{exp}",
+                    "expected #{this} not to be close to #{exp}",
+                    new Joined(expected, " +/- ", delta),
+                    null,
+                    prefix
+            );
+        }
+    }
+}
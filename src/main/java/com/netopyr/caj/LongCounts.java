@@ -0,0 +1,99 @@
+package com.netopyr.caj;
+
+/**
+ * Counts the occurrences of {@code long} keys in an open-addressing hash table. Elements of primitive arrays
+ * are converted to keys with {@link #key(Object, int)}, so they are counted without boxing.
+ */
+final class LongCounts {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final long[] keys;
+    private final int[] counts;
+    private final boolean[] used;
+    private final int mask;
+    private int size;
+
+    /**
+     * Creates a table that holds the expected number of keys at a load factor of at most 0.5.
+     *
+     * @param expectedKeys the number of keys that are going to be added
+     */
+    LongCounts(int expectedKeys) {
+        final long wanted = Math.max(MIN_CAPACITY, 2L * expectedKeys);
+        final int capacity = (int) Math.min(MAX_CAPACITY, Long.highestOneBit(wanted - 1) << 1);
+        keys = new long[capacity];
+        counts = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Increments the count of a key.
+     *
+     * @return the count after incrementing it
+     */
+    int increment(long key) {
+        int slot = slot(key);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (!used[slot]) {
+            // one slot stays free, so the probing of a missing key always ends
+            if (size == mask) {
+                throw new IllegalStateException("More than " + mask + " distinct keys");
+            }
+            size++;
+            used[slot] = true;
+            keys[slot] = key;
+        }
+        return ++counts[slot];
+    }
+
+    /**
+     * Decrements the count of a key.
+     *
+     * @return {@code false} if the count is already 0
+     */
+    boolean decrement(long key) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                if (counts[slot] == 0) {
+                    return false;
+                }
+                counts[slot]--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private int slot(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Returns a key that is equal for two elements of numeric or {@code char} arrays of the same type if and
+     * only if the boxed elements are equal.
+     */
+    static long key(Object array, int index) {
+        if (array instanceof int[]) {
+            return ((int[]) array)[index];
+        } else if (array instanceof long[]) {
+            return ((long[]) array)[index];
+        } else if (array instanceof double[]) {
+            return Double.doubleToLongBits(((double[]) array)[index]);
+        } else if (array instanceof float[]) {
+            return Float.floatToIntBits(((float[]) array)[index]);
+        } else if (array instanceof short[]) {
+            return ((short[]) array)[index];
+        } else if (array instanceof byte[]) {
+            return ((byte[]) array)[index];
+        }
+        return ((char[]) array)[index];
+    }
+}
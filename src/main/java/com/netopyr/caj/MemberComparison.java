@@ -0,0 +1,285 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the members of two arrays or collections as multisets, i.e. every element has to occur
+ * as often in one as in the other. The elements are counted in a hash table. If both sides consist of
+ * integral numbers or floating point numbers of the same type, either primitive or boxed, the
+ * elements are counted as primitive keys.
+ */
+final class MemberComparison {
+
+    private final Object actual;
+    private final Object expected;
+    private final int[] missing;
+    private final int[] unexpected;
+
+    private MemberComparison(Object actual, Object expected, int[] missing, int[] unexpected) {
+        this.actual = actual;
+        this.expected = expected;
+        this.missing = missing;
+        this.unexpected = unexpected;
+    }
+
+    /**
+     * Compares the members of two arrays or collections.
+     *
+     * @param actual the actual members, an array or a collection
+     * @param expected the expected members, an array or a collection
+     * @return the result of the comparison
+     */
+    static MemberComparison compare(Object actual, Object expected) {
+        final Object actualElements = elements(actual);
+        final Object expectedElements = elements(expected);
+        final Class<?> kind = kind(actualElements);
+        if (kind != null && kind == kind(expectedElements)) {
+            return comparePrimitives(actualElements, expectedElements, kind);
+        }
+        return compareObjects((Object[]) toObjects(actualElements), (Object[]) toObjects(expectedElements));
+    }
+
+    /**
+     * Compares lazily consumed members with the expected members. Only the expected members are held in
+     * memory. The actual members are consumed until the result is known: if {@code superset} is set, until
+     * all expected members have been found, otherwise until the first unexpected member.
+     *
+     * @param actual the actual members
+     * @param expected the expected members, an array or a collection
+     * @param superset {@code true} if only the expected members need to be contained in the actual members
+     * @return the result of the comparison, the unexpected members contain at most the first one
+     */
+    static MemberComparison compare(Iterator<?> actual, Object expected, boolean superset) {
+        final Object[] expectedElements = (Object[]) toObjects(elements(expected));
+        final Map<Object, int[]> counts = count(expectedElements);
+        int remaining = expectedElements.length;
+        while ((remaining > 0 || !superset) && actual.hasNext()) {
+            final Object element = actual.next();
+            final int[] count = counts.get(element);
+            if (count != null && count[0] > 0) {
+                count[0]--;
+                remaining--;
+            } else if (!superset) {
+                return new MemberComparison(new Object[] {element}, expectedElements, new int[0], new int[] {0});
+            }
+        }
+        final IntList missing = new IntList();
+        for (int i = 0; i < expectedElements.length && missing.size() < remaining; i++) {
+            final int[] count = counts.get(expectedElements[i]);
+            if (count[0] > 0) {
+                count[0]--;
+                missing.add(i);
+            }
+        }
+        return new MemberComparison(new Object[0], expectedElements, missing.toArray(), new int[0]);
+    }
+
+    /** @return {@code true} if every expected member is contained in the actual members */
+    boolean isSuperset() {
+        return missing.length == 0;
+    }
+
+    /** @return {@code true} if the actual and the expected members are the same */
+    boolean isSame() {
+        return missing.length == 0 && unexpected.length == 0;
+    }
+
+    /** @return the expected members that are missing in the actual members */
+    List<Object> getMissing() {
+        return select(expected, missing);
+    }
+
+    /** @return the actual members that have not been expected */
+    List<Object> getUnexpected() {
+        return select(actual, unexpected);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        if (missing.length > 0) {
+            builder.append("it is missing ").append(Assertion.formatValue(getMissing()));
+        }
+        if (unexpected.length > 0) {
+            builder.append(missing.length > 0? " and has unexpected " : "it has unexpected ").append(Assertion.formatValue(getUnexpected()));
+        }
+        return builder.toString();
+    }
+
+    private static Object elements(Object members) {
+        if (members instanceof Collection) {
+            return ((Collection<?>) members).toArray();
+        } else if (members != null && members.getClass().isArray()) {
+            return members;
+        }
+        throw new AssertionError("expected " + Assertion.formatValue(members) + " to be an Array or a Collection");
+    }
+
+    private static List<Object> select(Object elements, int[] indexes) {
+        final Object array = elements(elements);
+        final List<Object> result = new ArrayList<>(indexes.length);
+        for (final int index : indexes) {
+            result.add(Array.get(array, index));
+        }
+        return result;
+    }
+
+    private static Object toObjects(Object elements) {
+        if (elements instanceof Object[]) {
+            return elements;
+        }
+        final int n = Array.getLength(elements);
+        final Object[] objects = new Object[n];
+        for (int i = 0; i < n; i++) {
+            objects[i] = Array.get(elements, i);
+        }
+        return objects;
+    }
+
+    /**
+     * Returns the wrapper class of the elements if they can be compared as primitive keys, {@code null} otherwise.
+     */
+    private static Class<?> kind(Object elements) {
+        if (elements instanceof Object[]) {
+            final Object[] objects = (Object[]) elements;
+            if (objects.length == 0 || objects[0] == null || !isNumeric(objects[0].getClass())) {
+                return null;
+            }
+            final Class<?> kind = objects[0].getClass();
+            for (final Object object : objects) {
+                if (object == null || object.getClass() != kind) {
+                    return null;
+                }
+            }
+            return kind;
+        }
+        final Class<?> componentType = elements.getClass().getComponentType();
+        return componentType == int.class? Integer.class
+                : componentType == long.class? Long.class
+                : componentType == double.class? Double.class
+                : componentType == float.class? Float.class
+                : componentType == short.class? Short.class
+                : componentType == byte.class? Byte.class
+                : componentType == char.class? Character.class
+                : null;
+    }
+
+    private static boolean isNumeric(Class<?> clazz) {
+        return clazz == Integer.class || clazz == Long.class || clazz == Double.class || clazz == Float.class
+                || clazz == Short.class || clazz == Byte.class || clazz == Character.class;
+    }
+
+    /**
+     * Converts the elements to keys that are equal if and only if the boxed elements are equal.
+     */
+    private static long[] keys(Object elements, Class<?> kind) {
+        if (elements instanceof long[]) {
+            return (long[]) elements;
+        } else if (PrimitiveArrays.isPrimitiveArray(elements)) {
+            final long[] keys = new long[PrimitiveArrays.length(elements)];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = LongCounts.key(elements, i);
+            }
+            return keys;
+        }
+        final Object[] objects = (Object[]) elements;
+        final long[] keys = new long[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            final Object object = objects[i];
+            keys[i] = kind == Double.class? Double.doubleToLongBits((Double) object)
+                    : kind == Float.class? Float.floatToIntBits((Float) object)
+                    : kind == Character.class? (Character) object
+                    : ((Number) object).longValue();
+        }
+        return keys;
+    }
+
+    private static MemberComparison comparePrimitives(Object actual, Object expected, Class<?> kind) {
+        final long[] actualKeys = keys(actual, kind);
+        final long[] expectedKeys = keys(expected, kind);
+
+        final LongCounts counts = new LongCounts(expectedKeys.length);
+        for (final long key : expectedKeys) {
+            counts.increment(key);
+        }
+        final IntList unexpected = new IntList();
+        for (int i = 0; i < actualKeys.length; i++) {
+            if (!counts.decrement(actualKeys[i])) {
+                unexpected.add(i);
+            }
+        }
+        final IntList missing = new IntList();
+        if (unexpected.size() != actualKeys.length - expectedKeys.length) {
+            for (int i = 0; i < expectedKeys.length; i++) {
+                if (counts.decrement(expectedKeys[i])) {
+                    missing.add(i);
+                }
+            }
+        }
+        return new MemberComparison(actual, expected, missing.toArray(), unexpected.toArray());
+    }
+
+    private static Map<Object, int[]> count(Object[] elements) {
+        final Map<Object, int[]> counts = new HashMap<>(elements.length * 4 / 3 + 1);
+        for (final Object element : elements) {
+            final int[] count = counts.get(element);
+            if (count == null) {
+                counts.put(element, new int[] {1});
+            } else {
+                count[0]++;
+            }
+        }
+        return counts;
+    }
+
+    private static MemberComparison compareObjects(Object[] actual, Object[] expected) {
+        final Map<Object, int[]> counts = count(expected);
+        final IntList unexpected = new IntList();
+        for (int i = 0; i < actual.length; i++) {
+            final int[] count = counts.get(actual[i]);
+            if (count == null || count[0] == 0) {
+                unexpected.add(i);
+            } else {
+                count[0]--;
+            }
+        }
+        final IntList missing = new IntList();
+        if (unexpected.size() != actual.length - expected.length) {
+            for (int i = 0; i < expected.length; i++) {
+                final int[] count = counts.get(expected[i]);
+                if (count[0] > 0) {
+                    count[0]--;
+                    missing.add(i);
+                }
+            }
+        }
+        return new MemberComparison(actual, expected, missing.toArray(), unexpected.toArray());
+    }
+
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
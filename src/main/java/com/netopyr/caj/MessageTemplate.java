@@ -0,0 +1,111 @@
+package com.netopyr.caj;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A failure message with the placeholders {@code #{this}}, {@code #{exp}} and {@code #{act}}.
+ * Templates are parsed once into literal parts and placeholders and are cached,
+ * rendering a message is a single pass into a pre-sized builder.
+ */
+final class MessageTemplate {
+
+    private static final int THIS = 0;
+    private static final int EXPECTED = 1;
+    private static final int ACTUAL = 2;
+    private static final String[] PLACEHOLDERS = {"#{this}", "#{exp}", "#{act}"};
+
+    // Almost all templates are constants, the limit only protects against messages that are assembled dynamically
+    private static final int MAX_CACHED = 1024;
+    private static final ConcurrentMap<String, MessageTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String[] literals;
+    private final int[] placeholders;
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, int[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (final String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static MessageTemplate of(String template) {
+        final MessageTemplate cached = CACHE.get(template);
+        if (cached != null) {
+            return cached;
+        }
+        final MessageTemplate parsed = parse(template);
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.putIfAbsent(template, parsed);
+        }
+        return parsed;
+    }
+
+    private static MessageTemplate parse(String template) {
+        final String[] literals = new String[count(template) + 1];
+        final int[] placeholders = new int[literals.length - 1];
+        int start = 0;
+        int n = 0;
+        for (int pos = template.indexOf("#{"); pos >= 0; pos = template.indexOf("#{", pos + 1)) {
+            final int placeholder = placeholderAt(template, pos);
+            if (placeholder >= 0) {
+                literals[n] = template.substring(start, pos);
+                placeholders[n] = placeholder;
+                n++;
+                start = pos + PLACEHOLDERS[placeholder].length();
+                pos = start - 1;
+            }
+        }
+        literals[n] = template.substring(start);
+        return new MessageTemplate(literals, placeholders);
+    }
+
+    private static int count(String template) {
+        int count = 0;
+        for (int pos = template.indexOf("#{"); pos >= 0; pos = template.indexOf("#{", pos + 1)) {
+            if (placeholderAt(template, pos) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int placeholderAt(String template, int pos) {
+        for (int i = 0; i < PLACEHOLDERS.length; i++) {
+            if (template.startsWith(PLACEHOLDERS[i], pos)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Renders the message. Every value is formatted at most once and only if the template refers to it,
+     * formatted values are inserted verbatim, i.e. placeholders within them are not expanded.
+     */
+    String render(Object subject, Object expected, Object actual, String prefix) {
+        final String[] values = new String[PLACEHOLDERS.length];
+        int length = literalLength + (prefix != null? prefix.length() + 2 : 0);
+        for (final int placeholder : placeholders) {
+            if (values[placeholder] == null) {
+                values[placeholder] = Assertion.formatValue(
+                        placeholder == THIS? subject : placeholder == EXPECTED? expected : actual
+                );
+            }
+            length += values[placeholder].length();
+        }
+
+        final StringBuilder builder = new StringBuilder(length);
+        if (prefix != null) {
+            builder.append(prefix).append(": ");
+        }
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]).append(values[placeholders[i]]);
+        }
+        return builder.append(literals[placeholders.length]).toString();
+    }
+}
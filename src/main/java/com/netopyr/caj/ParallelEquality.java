@@ -0,0 +1,282 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Enables the parallel comparison of large arrays and random-access lists in {@code eql} and
+ * {@code deep.equal}. If both values have at least {@code threshold} elements, the elements are split into
+ * chunks of at least 16384 elements, or of half the threshold if that is less, so a value at the threshold has
+ * at least two chunks. The chunks are compared by the calling thread and on an executor. As soon as a chunk finds
+ * a mismatch, all chunks behind it stop or are skipped. The chunks in front of it complete, so the reported
+ * difference is the same as in a sequential comparison.
+ *
+ * <p>The parallel comparison is disabled by default.
+ *
+ * <pre>
+ *     ParallelEquality.setDefault(new ParallelEquality(1_000_000));
+ *     expect(actualRows).to.eql(expectedRows);
+ * </pre>
+ */
+public final class ParallelEquality {
+
+    /** Chunks are not smaller than this, unless the threshold is lower. */
+    private static final int MIN_CHUNK = 1 << 14;
+    private static final int BLOCK = 1 << 12;
+
+    private static volatile ParallelEquality defaultSettings;
+
+    private final int threshold;
+    private final int minChunk;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Creates settings that compare large values in the common {@code ForkJoinPool}.
+     *
+     * @param threshold the minimum number of elements for which the comparison runs in parallel
+     */
+    public ParallelEquality(int threshold) {
+        this(threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates settings that compare large values with the given executor.
+     *
+     * @param threshold the minimum number of elements for which the comparison runs in parallel
+     * @param executor the executor that runs the chunks
+     */
+    public ParallelEquality(int threshold, Executor executor) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is required");
+        }
+        this.threshold = threshold;
+        // a value at the threshold is split into at least two chunks
+        this.minChunk = Math.max(1, Math.min(MIN_CHUNK, threshold / 2));
+        this.executor = executor;
+        this.parallelism = executor instanceof ForkJoinPool? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the settings used by {@code eql}.
+     *
+     * @return the settings or {@code null} if large values are compared sequentially
+     */
+    public static ParallelEquality getDefault() {
+        return defaultSettings;
+    }
+
+    /**
+     * Sets the settings used by {@code eql}.
+     *
+     * @param settings the settings or {@code null} to compare large values sequentially
+     */
+    public static void setDefault(ParallelEquality settings) {
+        defaultSettings = settings;
+    }
+
+    boolean appliesTo(int length) {
+        return length >= threshold;
+    }
+
+    /**
+     * Finds the first index at which the elements of two arrays or random-access lists of the same length
+     * are not deeply equal.
+     *
+     * <p>The chunks are claimed in order by the calling thread and by helper tasks on the executor. The
+     * calling thread only waits for chunks that a running helper has claimed, so the comparison completes
+     * even if it runs on a thread of a saturated executor. Chunks behind a found mismatch are skipped.
+     *
+     * @return the index of the first mismatch or -1 if all elements are deeply equal
+     */
+    int mismatch(Object actual, Object expected, int length) {
+        final Comparison comparison = new Comparison(actual, expected, length,
+                Math.max(1, Math.min(length / minChunk, parallelism * 4)));
+        final int helpers = Math.min(comparison.chunks - 1, parallelism);
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(comparison::run);
+            } catch (RejectedExecutionException e) {
+                // the calling thread compares the remaining chunks itself
+                break;
+            }
+        }
+        comparison.run();
+        comparison.await();
+        final int first = comparison.first.get();
+        return first == Integer.MAX_VALUE? -1 : first;
+    }
+
+    private static final class Comparison {
+        private final Object actual;
+        private final Object expected;
+        private final int length;
+        private final int chunks;
+        private final int chunkSize;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CountDownLatch done;
+
+        private Comparison(Object actual, Object expected, int length, int chunks) {
+            this.actual = actual;
+            this.expected = expected;
+            this.length = length;
+            this.chunks = chunks;
+            this.chunkSize = (length + chunks - 1) / chunks;
+            this.done = new CountDownLatch(chunks);
+        }
+
+        /** Claims and compares chunks until all chunks are claimed. */
+        private void run() {
+            for (int chunk = next.getAndIncrement(); chunk < chunks; chunk = next.getAndIncrement()) {
+                final int from = chunk * chunkSize;
+                try {
+                    if (first.get() > from && failure.get() == null) {
+                        compareChunk(actual, expected, from, Math.min(length, from + chunkSize), first);
+                    }
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        private void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            final Throwable e = failure.get();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e != null) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    private static void compareChunk(Object actual, Object expected, int from, int to, AtomicInteger first) {
+        for (int start = from; start < to; start += BLOCK) {
+            if (first.get() < start) {
+                // a mismatch in front of this block was found already
+                return;
+            }
+            final int index = mismatch(actual, expected, start, Math.min(to, start + BLOCK));
+            if (index >= 0) {
+                first.accumulateAndGet(index, Math::min);
+                return;
+            }
+        }
+    }
+
+    private static int mismatch(Object actual, Object expected, int from, int to) {
+        if (actual instanceof int[] && expected instanceof int[]) {
+            final int[] a = (int[]) actual;
+            final int[] e = (int[]) expected;
+            for (int i = from; i < to; i++) {
+                if (a[i] != e[i]) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof long[] && expected instanceof long[]) {
+            final long[] a = (long[]) actual;
+            final long[] e = (long[]) expected;
+            for (int i = from; i < to; i++) {
+                if (a[i] != e[i]) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof double[] && expected instanceof double[]) {
+            final double[] a = (double[]) actual;
+            final double[] e = (double[]) expected;
+            for (int i = from; i < to; i++) {
+                if (Double.doubleToLongBits(a[i]) != Double.doubleToLongBits(e[i])) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof byte[] && expected instanceof byte[]) {
+            final byte[] a = (byte[]) actual;
+            final byte[] e = (byte[]) expected;
+            for (int i = from; i < to; i++) {
+                if (a[i] != e[i]) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof float[] && expected instanceof float[]) {
+            final float[] a = (float[]) actual;
+            final float[] e = (float[]) expected;
+            for (int i = from; i < to; i++) {
+                if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(e[i])) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof short[] && expected instanceof short[]) {
+            final short[] a = (short[]) actual;
+            final short[] e = (short[]) expected;
+            for (int i = from; i < to; i++) {
+                if (a[i] != e[i]) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof char[] && expected instanceof char[]) {
+            final char[] a = (char[]) actual;
+            final char[] e = (char[]) expected;
+            for (int i = from; i < to; i++) {
+                if (a[i] != e[i]) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof boolean[] && expected instanceof boolean[]) {
+            final boolean[] a = (boolean[]) actual;
+            final boolean[] e = (boolean[]) expected;
+            for (int i = from; i < to; i++) {
+                if (a[i] != e[i]) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof Object[] && expected instanceof Object[]) {
+            final Object[] a = (Object[]) actual;
+            final Object[] e = (Object[]) expected;
+            for (int i = from; i < to; i++) {
+                if (!DeepEquals.same(a[i], e[i])) {
+                    return i;
+                }
+            }
+        } else if (actual instanceof List && expected instanceof List) {
+            final List<?> a = (List<?>) actual;
+            final List<?> e = (List<?>) expected;
+            for (int i = from; i < to; i++) {
+                if (!DeepEquals.same(a.get(i), e.get(i))) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                if (!DeepEquals.same(Array.get(actual, i), Array.get(expected, i))) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
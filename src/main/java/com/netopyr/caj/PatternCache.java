@@ -0,0 +1,140 @@
+package com.netopyr.caj;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded cache of compiled regular expressions, used by {@code match(String)} and {@code matches(String)}.
+ * Lookups do not lock. When the cache is full, the least recently used of a few sampled patterns is evicted,
+ * so the cost of a miss does not grow with the size of the cache. Hits and misses are counted to help choosing
+ * the size.
+ *
+ * <pre>
+ *     PatternCache.setDefault(new PatternCache(1024));
+ *     ...
+ *     System.out.println(PatternCache.getDefault().getHitCount());
+ * </pre>
+ */
+public final class PatternCache {
+
+    /** The number of patterns that are compared to find the one that is evicted. */
+    private static final int EVICTION_SAMPLES = 8;
+
+    private static volatile PatternCache defaultCache = new PatternCache(256);
+
+    private final int maxSize;
+    private final ConcurrentMap<String, Entry> patterns = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache with the given capacity.
+     *
+     * @param maxSize the maximum number of cached patterns, 0 disables caching
+     */
+    public PatternCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache that is used by the assertions.
+     *
+     * @return the cache used by the assertions
+     */
+    public static PatternCache getDefault() {
+        return defaultCache;
+    }
+
+    /**
+     * Sets the cache that is used by the assertions.
+     *
+     * @param cache the cache used by the assertions
+     */
+    public static void setDefault(PatternCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("cache is required");
+        }
+        defaultCache = cache;
+    }
+
+    /**
+     * Returns the compiled regular expression, which is compiled only if it is not cached.
+     *
+     * @param regex the regular expression
+     * @return the compiled regular expression
+     */
+    public Pattern get(String regex) {
+        final Entry entry = patterns.get(regex);
+        if (entry != null) {
+            hits.increment();
+            entry.lastAccess = clock.incrementAndGet();
+            return entry.pattern;
+        }
+        misses.increment();
+        final Pattern pattern = Pattern.compile(regex);
+        if (maxSize > 0) {
+            patterns.put(regex, new Entry(pattern, clock.incrementAndGet()));
+            // evicting after inserting restores the bound, even if other threads inserted at the same time
+            while (patterns.size() > maxSize) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        return pattern;
+    }
+
+    /** Evicts the least recently used of the first {@value #EVICTION_SAMPLES} patterns in the map. */
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<String, Entry> eldest = null;
+        final Iterator<Map.Entry<String, Entry>> candidates = patterns.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLES && candidates.hasNext(); i++) {
+            final Map.Entry<String, Entry> candidate = candidates.next();
+            if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                eldest = candidate;
+            }
+        }
+        if (eldest != null) {
+            patterns.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /** @return the number of lookups that found a cached pattern */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return the number of lookups that had to compile the pattern */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** @return the number of cached patterns */
+    public int size() {
+        return patterns.size();
+    }
+
+    /** Removes all patterns and resets the counts. */
+    public void clear() {
+        patterns.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class Entry {
+        private final Pattern pattern;
+        private volatile long lastAccess;
+
+        private Entry(Pattern pattern, long lastAccess) {
+            this.pattern = pattern;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
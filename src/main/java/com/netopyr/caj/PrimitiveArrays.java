@@ -0,0 +1,156 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Operations on arrays of primitive values that work on the raw arrays directly,
+ * i.e. without boxing the elements through {@link Array#get(Object, int)}.
+ */
+final class PrimitiveArrays {
+
+    private PrimitiveArrays() {}
+
+    static boolean isPrimitiveArray(Object value) {
+        return value != null && value.getClass().isArray() && value.getClass().getComponentType().isPrimitive();
+    }
+
+    static int length(Object array) {
+        if (array instanceof Object[]) {
+            return ((Object[]) array).length;
+        } else if (array instanceof int[]) {
+            return ((int[]) array).length;
+        } else if (array instanceof long[]) {
+            return ((long[]) array).length;
+        } else if (array instanceof double[]) {
+            return ((double[]) array).length;
+        } else if (array instanceof byte[]) {
+            return ((byte[]) array).length;
+        }
+        return Array.getLength(array);
+    }
+
+    /**
+     * Checks if a primitive array contains the given value. Like the comparison of boxed values,
+     * only a value of the matching wrapper class can be contained, e.g. an {@code Integer} in an {@code int[]}.
+     */
+    static boolean contains(Object array, Object value) {
+        if (array instanceof int[]) {
+            return value instanceof Integer && indexOf((int[]) array, (Integer) value) >= 0;
+        } else if (array instanceof long[]) {
+            return value instanceof Long && indexOf((long[]) array, (Long) value) >= 0;
+        } else if (array instanceof double[]) {
+            return value instanceof Double && indexOf((double[]) array, (Double) value) >= 0;
+        } else if (array instanceof byte[]) {
+            return value instanceof Byte && indexOf((byte[]) array, (Byte) value) >= 0;
+        } else if (array instanceof short[]) {
+            return value instanceof Short && indexOf((short[]) array, (Short) value) >= 0;
+        } else if (array instanceof char[]) {
+            return value instanceof Character && indexOf((char[]) array, (Character) value) >= 0;
+        } else if (array instanceof float[]) {
+            return value instanceof Float && indexOf((float[]) array, (Float) value) >= 0;
+        } else if (array instanceof boolean[]) {
+            return value instanceof Boolean && indexOf((boolean[]) array, (Boolean) value) >= 0;
+        }
+        throw new IllegalArgumentException("Not a primitive array: " + array);
+    }
+
+    /**
+     * Compares two primitive arrays of the same type. Floating point values are compared
+     * like their boxed counterparts, i.e. {@code NaN} equals {@code NaN}.
+     */
+    static boolean equals(Object array1, Object array2) {
+        if (array1 instanceof int[]) {
+            return Arrays.equals((int[]) array1, (int[]) array2);
+        } else if (array1 instanceof long[]) {
+            return Arrays.equals((long[]) array1, (long[]) array2);
+        } else if (array1 instanceof double[]) {
+            return Arrays.equals((double[]) array1, (double[]) array2);
+        } else if (array1 instanceof byte[]) {
+            return Arrays.equals((byte[]) array1, (byte[]) array2);
+        } else if (array1 instanceof short[]) {
+            return Arrays.equals((short[]) array1, (short[]) array2);
+        } else if (array1 instanceof char[]) {
+            return Arrays.equals((char[]) array1, (char[]) array2);
+        } else if (array1 instanceof float[]) {
+            return Arrays.equals((float[]) array1, (float[]) array2);
+        } else if (array1 instanceof boolean[]) {
+            return Arrays.equals((boolean[]) array1, (boolean[]) array2);
+        }
+        throw new IllegalArgumentException("Not a primitive array: " + array1);
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(long[] array, long value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(double[] array, double value) {
+        final long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < array.length; i++) {
+            if (Double.doubleToLongBits(array[i]) == bits) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] array, byte value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(short[] array, short value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(char[] array, char value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(float[] array, float value) {
+        final int bits = Float.floatToIntBits(value);
+        for (int i = 0; i < array.length; i++) {
+            if (Float.floatToIntBits(array[i]) == bits) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(boolean[] array, boolean value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
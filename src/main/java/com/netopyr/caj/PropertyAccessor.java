@@ -0,0 +1,158 @@
+package com.netopyr.caj;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads a property of a bean. The accessor is resolved once per class and property name
+ * and cached, including the information that a class does not have a property. Getters are compiled
+ * with the {@code LambdaMetafactory} where possible and fall back to {@code MethodHandle}s otherwise,
+ * reading a property does not go through reflection.
+ *
+ * <p>A property is read with the first of these that exists and can be invoked:
+ * a getter {@code getX()}, a boolean getter {@code isX()}, an old-style getter {@code x()}
+ * like {@code size()} or {@code length()}, or a public field {@code x}.
+ */
+final class PropertyAccessor {
+
+    @FunctionalInterface
+    private interface Getter {
+        Object get(Object bean) throws Throwable;
+    }
+
+    /** The value returned by {@link #get(Object)} if the bean does not have the property. */
+    static final Object NO_PROPERTY = new Object();
+
+    private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> ACCESSORS =
+            new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+                @Override
+                protected ConcurrentMap<String, PropertyAccessor> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    // access is checked like it was for Method.invoke() called from within this package
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Getter[] getters;
+
+    private PropertyAccessor(Getter[] getters) {
+        this.getters = getters;
+    }
+
+    static PropertyAccessor of(Class<?> clazz, String propertyName) {
+        final ConcurrentMap<String, PropertyAccessor> accessors = ACCESSORS.get(clazz);
+        final PropertyAccessor accessor = accessors.get(propertyName);
+        return accessor != null? accessor : accessors.computeIfAbsent(propertyName, name -> resolve(clazz, name));
+    }
+
+    /**
+     * Reads the property.
+     *
+     * @param bean the bean to read the property from
+     * @return the value of the property or {@link #NO_PROPERTY} if the bean does not have it
+     */
+    Object get(Object bean) {
+        for (final Getter getter : getters) {
+            try {
+                return getter.get(bean);
+            } catch (Throwable t) {
+                // ignore, a getter that fails is skipped like any other getter that cannot be called
+            }
+        }
+        return NO_PROPERTY;
+    }
+
+    private static PropertyAccessor resolve(Class<?> clazz, String propertyName) {
+        final String propertyGetterBase = propertyName.substring(0, 1).toUpperCase() + propertyName.substring(1);
+        final List<Getter> getters = new ArrayList<>(1);
+
+        final Method getter = findMethod(clazz, "get" + propertyGetterBase);
+        if (getter != null && ! void.class.equals(getter.getReturnType())) {
+            addGetter(getters, getter);
+        }
+        final Method booleanGetter = findMethod(clazz, "is" + propertyGetterBase);
+        if (booleanGetter != null) {
+            final Class<?> returnType = booleanGetter.getReturnType();
+            if (boolean.class.equals(returnType) || Boolean.class.equals(returnType)) {
+                addGetter(getters, booleanGetter);
+            }
+        }
+        // we also want to support old-style getters like size() and length()
+        final Method oldStyleGetter = findMethod(clazz, propertyName);
+        if (oldStyleGetter != null && ! void.class.equals(oldStyleGetter.getReturnType())) {
+            addGetter(getters, oldStyleGetter);
+        }
+
+        try {
+            final Field field = clazz.getField(propertyName);
+            final MethodHandle handle = asGetterType(LOOKUP.unreflectGetter(field), field.getModifiers());
+            getters.add(bean -> handle.invokeExact(bean));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            // ignore
+        }
+        return new PropertyAccessor(getters.toArray(new Getter[getters.size()]));
+    }
+
+    private static void addGetter(List<Getter> getters, Method method) {
+        final MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            // ignore, e.g. a public method of a class that is not public
+            return;
+        }
+        if (!Modifier.isStatic(method.getModifiers()) && isVisible(method.getDeclaringClass())) {
+            try {
+                final CallSite callSite = LambdaMetafactory.metafactory(
+                        LOOKUP,
+                        "get",
+                        MethodType.methodType(Getter.class),
+                        GETTER_TYPE,
+                        handle,
+                        handle.type().changeReturnType(Object.class)
+                );
+                getters.add((Getter) callSite.getTarget().invokeExact());
+                return;
+            } catch (Throwable t) {
+                // fall back to the method handle
+            }
+        }
+        final MethodHandle getter = asGetterType(handle, method.getModifiers());
+        getters.add(bean -> getter.invokeExact(bean));
+    }
+
+    private static MethodHandle asGetterType(MethodHandle handle, int modifiers) {
+        // a static member ignores the bean like Method.invoke() and Field.get() do
+        final MethodHandle getter = Modifier.isStatic(modifiers)? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+        return getter.asType(GETTER_TYPE);
+    }
+
+    // the generated getter refers to the class by name, it has to resolve to the same class from here
+    private static boolean isVisible(Class<?> clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, PropertyAccessor.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name) {
+        try {
+            return clazz.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
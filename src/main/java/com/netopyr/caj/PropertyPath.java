@@ -0,0 +1,217 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed path to a property, e.g. {@code "orders[3].lines[0].price"}. The path is parsed once,
+ * resolving it against an object only walks the segments.
+ *
+ * <pre>
+ *     final PropertyPath price = Caj.path("orders[3].lines[0].price");
+ *     expect(customer).to.have.property(price, 42);
+ * </pre>
+ */
+public final class PropertyPath {
+
+    private static final Pattern ARRAY_INDEX = Pattern.compile("\\[(.*?)]");
+
+    private static final int MAX_CACHED = 1024;
+    private static final ConcurrentMap<String, PropertyPath> CACHE = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Boolean> INTEGER_KEYS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            final TypeVariable<?>[] typeParameters = type.getTypeParameters();
+            return typeParameters.length > 0 && "java.lang.Integer".equals(typeParameters[0].getBounds()[0].getTypeName());
+        }
+    };
+
+    private final String path;
+    private final Segment[] segments;
+
+    private PropertyPath(String path, Segment[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the parsed path. Paths are cached, parsing the same path again is cheap.
+     *
+     * @param path the path, properties are separated with dots, indexes and keys are put in brackets
+     * @return the parsed path
+     */
+    public static PropertyPath of(String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is required");
+        }
+        final PropertyPath cached = CACHE.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        final PropertyPath parsed = parse(path);
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.putIfAbsent(path, parsed);
+        }
+        return parsed;
+    }
+
+    private static PropertyPath parse(String path) {
+        final List<Segment> segments = new ArrayList<>();
+        for (final String pathElement : path.split("\\.")) {
+            final int arrayPos = pathElement.indexOf('[');
+            if (arrayPos != 0) {
+                final String propertyName = arrayPos < 0? pathElement : pathElement.substring(0, arrayPos);
+                if (propertyName.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid property path " + Assertion.formatValue(path));
+                }
+                segments.add(new Segment(propertyName, false));
+            }
+            if (arrayPos >= 0) {
+                final Matcher matcher = ARRAY_INDEX.matcher(pathElement.substring(arrayPos));
+                while (matcher.find()) {
+                    segments.add(new Segment(matcher.group(1), true));
+                }
+            }
+        }
+        return new PropertyPath(path, segments.toArray(new Segment[segments.size()]));
+    }
+
+    /**
+     * Resolves the path against an object.
+     *
+     * @param root the object the path starts at
+     * @return the value of the property or {@link PropertyAccessor#NO_PROPERTY} if it does not exist
+     */
+    Object get(Object root) {
+        Object value = root;
+        for (final Segment segment : segments) {
+            value = step(value, segment);
+            if (value == PropertyAccessor.NO_PROPERTY) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Resolves several paths against the same object. The paths are merged into a tree,
+     * every common prefix is resolved only once.
+     *
+     * @param root the object the paths start at
+     * @param paths the paths to resolve
+     * @return the values of the properties in the order of the paths, {@link PropertyAccessor#NO_PROPERTY}
+     * for those that do not exist
+     */
+    static Object[] getAll(Object root, PropertyPath[] paths) {
+        final Node tree = new Node();
+        for (int i = 0; i < paths.length; i++) {
+            Node node = tree;
+            for (final Segment segment : paths[i].segments) {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+            node.paths.add(i);
+        }
+        final Object[] values = new Object[paths.length];
+        tree.resolve(root, values);
+        return values;
+    }
+
+    private static Object step(Object value, Segment segment) {
+        if (value == null) {
+            // a null on the way to a property means the property does not exist, like a missing key
+            return PropertyAccessor.NO_PROPERTY;
+        }
+        return segment.index? getElement(value, segment) : PropertyAccessor.of(value.getClass(), segment.name).get(value);
+    }
+
+    private static Object getElement(Object value, Segment segment) {
+        if (value.getClass().isArray()) {
+            if (segment.position < 0 || segment.position >= Array.getLength(value)) {
+                return PropertyAccessor.NO_PROPERTY;
+            }
+            return Array.get(value, segment.position);
+        } else if (value instanceof List<?>) {
+            final List<?> list = (List<?>) value;
+            if (segment.position < 0 || segment.position >= list.size()) {
+                return PropertyAccessor.NO_PROPERTY;
+            }
+            return list.get(segment.position);
+        } else if (value instanceof Map<?, ?>) {
+            if (!INTEGER_KEYS.get(value.getClass())) {
+                return ((Map<?, ?>) value).get(segment.name);
+            }
+            return segment.numeric? ((Map<?, ?>) value).get(segment.position) : PropertyAccessor.NO_PROPERTY;
+        }
+        return PropertyAccessor.NO_PROPERTY;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static final class Node {
+        private final Map<Segment, Node> children = new LinkedHashMap<>();
+        private final List<Integer> paths = new ArrayList<>(1);
+
+        private void resolve(Object value, Object[] values) {
+            for (final int path : paths) {
+                values[path] = value;
+            }
+            for (final Map.Entry<Segment, Node> child : children.entrySet()) {
+                final Object childValue = value == PropertyAccessor.NO_PROPERTY? value : step(value, child.getKey());
+                child.getValue().resolve(childValue, values);
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final String name;
+        private final boolean index;
+        private final boolean numeric;
+        private final int position;
+
+        private Segment(String name, boolean index) {
+            this.name = name;
+            this.index = index;
+            int position = -1;
+            boolean numeric = false;
+            if (index) {
+                try {
+                    position = Integer.parseInt(name);
+                    numeric = true;
+                } catch (NumberFormatException e) {
+                    // not a numeric index, only usable as a key of a map
+                }
+            }
+            this.position = position;
+            this.numeric = numeric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            final Segment other = (Segment) o;
+            return index == other.index && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + (index? 1 : 0);
+        }
+    }
+}
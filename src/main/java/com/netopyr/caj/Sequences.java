@@ -0,0 +1,182 @@
+package com.netopyr.caj;
+
+import java.lang.reflect.Array;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Single-pass checks of the order and the distinctness of elements. Every check stops at the first
+ * violation. Primitive arrays are checked without boxing their elements.
+ */
+final class Sequences {
+
+    private static final int NOT_PRIMITIVE = -2;
+
+    private Sequences() {}
+
+    /**
+     * Finds the first element that is out of order.
+     *
+     * @param elements an array, an {@code Iterable}, an iterator or a stream
+     * @param comparator the order or {@code null} for the natural order
+     * @param descending {@code true} if the elements have to be in descending order
+     * @param strict {@code true} if consecutive elements must not be equal
+     * @return the violation or {@code null} if all elements are in order
+     */
+    @SuppressWarnings("unchecked")
+    static Violation unordered(Object elements, Comparator<?> comparator, boolean descending, boolean strict) {
+        final int sign = descending? -1 : 1;
+        if (comparator == null) {
+            final int index = unorderedPrimitives(elements, sign, strict);
+            if (index != NOT_PRIMITIVE) {
+                return index < 0? null
+                        : Violation.order(index, Array.get(elements, index), Array.get(elements, index - 1));
+            }
+        }
+        final Comparator<Object> order = comparator != null? (Comparator<Object>) comparator
+                : (a, b) -> ((Comparable<Object>) a).compareTo(b);
+        final Iterator<?> iterator = Elements.iterator(elements);
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Object previous = iterator.next();
+        for (int i = 1; iterator.hasNext(); i++) {
+            final Object current = iterator.next();
+            if (violates(descending? order.compare(current, previous) : order.compare(previous, current), strict)) {
+                return Violation.order(i, current, previous);
+            }
+            previous = current;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first element that is equal to an element before it.
+     *
+     * @param elements an array, an {@code Iterable}, an iterator or a stream
+     * @return the violation or {@code null} if all elements are distinct
+     */
+    static Violation duplicate(Object elements) {
+        if (PrimitiveArrays.isPrimitiveArray(elements) && !(elements instanceof boolean[])) {
+            final int n = PrimitiveArrays.length(elements);
+            final LongCounts seen = new LongCounts(n);
+            for (int i = 0; i < n; i++) {
+                if (seen.increment(LongCounts.key(elements, i)) > 1) {
+                    return Violation.duplicate(i, Array.get(elements, i));
+                }
+            }
+            return null;
+        }
+        final Set<Object> seen = new HashSet<>();
+        final Iterator<?> iterator = Elements.iterator(elements);
+        for (int i = 0; iterator.hasNext(); i++) {
+            final Object element = iterator.next();
+            if (!seen.add(element)) {
+                return Violation.duplicate(i, element);
+            }
+        }
+        return null;
+    }
+
+    private static boolean violates(int comparison, boolean strict) {
+        return comparison > 0 || (strict && comparison == 0);
+    }
+
+    /**
+     * @return the index of the first element out of natural order, -1 if all elements are in order,
+     * or {@link #NOT_PRIMITIVE} if the elements are not a numeric primitive array
+     */
+    private static int unorderedPrimitives(Object elements, int sign, boolean strict) {
+        if (elements instanceof int[]) {
+            final int[] array = (int[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Integer.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        } else if (elements instanceof long[]) {
+            final long[] array = (long[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Long.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        } else if (elements instanceof double[]) {
+            final double[] array = (double[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Double.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        } else if (elements instanceof float[]) {
+            final float[] array = (float[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Float.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        } else if (elements instanceof short[]) {
+            final short[] array = (short[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Short.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        } else if (elements instanceof byte[]) {
+            final byte[] array = (byte[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Byte.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        } else if (elements instanceof char[]) {
+            final char[] array = (char[]) elements;
+            for (int i = 1; i < array.length; i++) {
+                if (violates(sign * Character.compare(array[i - 1], array[i]), strict)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return NOT_PRIMITIVE;
+    }
+
+    /**
+     * The first element that violates a check, which is only formatted when it is part of a failure message.
+     */
+    static final class Violation {
+        private final int index;
+        private final Object element;
+        private final Object previous;
+        private final boolean duplicate;
+
+        private Violation(int index, Object element, Object previous, boolean duplicate) {
+            this.index = index;
+            this.element = element;
+            this.previous = previous;
+            this.duplicate = duplicate;
+        }
+
+        private static Violation order(int index, Object element, Object previous) {
+            return new Violation(index, element, previous, false);
+        }
+
+        private static Violation duplicate(int index, Object element) {
+            return new Violation(index, element, null, true);
+        }
+
+        @Override
+        public String toString() {
+            final String element = "[" + index + "] " + Assertion.formatValue(this.element);
+            return duplicate? element + " is a duplicate" : element + " follows " + Assertion.formatValue(previous);
+        }
+    }
+}
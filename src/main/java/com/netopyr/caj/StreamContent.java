@@ -0,0 +1,178 @@
+package com.netopyr.caj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Reads the content of {@code InputStream}s and {@code ReadableByteChannel}s incrementally through one
+ * fixed buffer per source, so the memory needed does not depend on the size of the content. The sources
+ * are consumed, but not closed.
+ */
+final class StreamContent {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private StreamContent() {}
+
+    /**
+     * @return {@code true} if the value is an {@code InputStream} or a {@code ReadableByteChannel}
+     */
+    static boolean isStream(Object value) {
+        return value instanceof InputStream || value instanceof ReadableByteChannel;
+    }
+
+    private static ReadableByteChannel channel(Object source) {
+        return source instanceof InputStream? Channels.newChannel((InputStream) source) : (ReadableByteChannel) source;
+    }
+
+    /**
+     * Reads until the buffer is full or the end of the content is reached. The buffer is flipped afterwards.
+     */
+    private static void fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).clear();
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // read until the buffer is full or the end of the content is reached
+        }
+        ((Buffer) buffer).flip();
+    }
+
+    /**
+     * Counts the bytes, but reads at most {@code limit} bytes. The callers pass a limit that decides their
+     * comparison, so no byte beyond it is consumed. If the limit is reached, the count is not exact.
+     */
+    static Elements.Count count(Object source, long limit) {
+        final ReadableByteChannel channel = channel(source);
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(BUFFER_SIZE, limit)));
+        try {
+            long count = 0;
+            int read = 0;
+            while (count < limit && read >= 0) {
+                ((Buffer) buffer).clear();
+                ((Buffer) buffer).limit((int) Math.min(buffer.capacity(), limit - count));
+                read = channel.read(buffer);
+                count += Math.max(0, read);
+            }
+            return new Elements.Count(count, read < 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Computes the digest of the content of a stream, a channel, a {@code byte[]} or a {@code ByteBuffer}.
+     *
+     * @param algorithm the name of the algorithm, e.g. {@code "SHA-256"}
+     * @return the digest as a lower case hex string
+     */
+    static String digest(Object source, String algorithm) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+        }
+        if (Bytes.isBytes(source)) {
+            digest.update(Bytes.asBuffer(source));
+        } else {
+            final ReadableByteChannel channel = channel(source);
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try {
+                do {
+                    fill(channel, buffer);
+                    digest.update(buffer);
+                } while (buffer.limit() == buffer.capacity());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        final byte[] hash = digest.digest();
+        final char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >>> 4) & 0xF];
+            hex[2 * i + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Compares the content of two sources until the first difference.
+     *
+     * @return the difference or {@code null} if the sources have the same content
+     */
+    static Difference mismatch(Object actual, Object expected) {
+        final ReadableByteChannel a = channel(actual);
+        final ReadableByteChannel e = channel(expected);
+        final ByteBuffer bufferA = ByteBuffer.allocate(BUFFER_SIZE);
+        final ByteBuffer bufferE = ByteBuffer.allocate(BUFFER_SIZE);
+        // the last bytes of the previous chunks, shown in front of a difference at the start of a chunk
+        byte[] tailA = new byte[0];
+        byte[] tailE = new byte[0];
+        try {
+            long position = 0;
+            while (true) {
+                fill(a, bufferA);
+                fill(e, bufferE);
+                final int index = Bytes.mismatch(bufferA, bufferE);
+                if (index >= 0) {
+                    final String end = index >= bufferA.limit()? " (the actual content ends there)"
+                            : index >= bufferE.limit()? " (the expected content ends there)" : "";
+                    return new Difference(position + index, end, window(tailA, bufferA, index),
+                            window(tailE, bufferE, index), tailA.length + index);
+                }
+                if (bufferA.limit() < bufferA.capacity()) {
+                    return null;
+                }
+                position += bufferA.limit();
+                tailA = Arrays.copyOfRange(bufferA.array(), bufferA.limit() - Bytes.WINDOW, bufferA.limit());
+                tailE = Arrays.copyOfRange(bufferE.array(), bufferE.limit() - Bytes.WINDOW, bufferE.limit());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Copies the tail of the previous chunk and the bytes of the current chunk up to the end of the window.
+     */
+    private static ByteBuffer window(byte[] tail, ByteBuffer buffer, int index) {
+        final int end = Math.min(buffer.limit(), index + Bytes.WINDOW);
+        final byte[] window = Arrays.copyOf(tail, tail.length + end);
+        System.arraycopy(buffer.array(), 0, window, tail.length, end);
+        return ByteBuffer.wrap(window);
+    }
+
+    /**
+     * The first difference between two sources. The bytes around it are copied when it is found, because
+     * the sources cannot be read again, but they are only formatted when they are part of a failure message.
+     */
+    static final class Difference {
+        private final long offset;
+        private final String end;
+        private final ByteBuffer actual;
+        private final ByteBuffer expected;
+        private final int index;
+
+        private Difference(long offset, String end, ByteBuffer actual, ByteBuffer expected, int index) {
+            this.offset = offset;
+            this.end = end;
+            this.actual = actual;
+            this.expected = expected;
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return "they differ at offset " + offset + end + Bytes.window(actual, expected, index, offset - index);
+        }
+    }
+}
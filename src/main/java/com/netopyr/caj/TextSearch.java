@@ -0,0 +1,86 @@
+package com.netopyr.caj;
+
+import java.util.Arrays;
+
+/**
+ * Searches for a substring in any {@code CharSequence} without copying it into a {@code String}.
+ * Long needles are searched with the Boyer-Moore-Horspool algorithm, which skips up to the length of the
+ * needle after a mismatch. Short needles in Strings are left to {@link String#indexOf(String)}.
+ */
+final class TextSearch {
+
+    /** Needles shorter than this are searched naively, a skip table does not pay off. */
+    private static final int MIN_SKIP_LENGTH = 8;
+
+    private static final int TABLE_SIZE = 256;
+
+    private TextSearch() {}
+
+    /**
+     * @return {@code true} if the haystack contains the needle
+     */
+    static boolean contains(CharSequence haystack, CharSequence needle) {
+        return indexOf(haystack, needle) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the needle in the haystack.
+     *
+     * @return the index or -1 if the haystack does not contain the needle
+     */
+    static int indexOf(CharSequence haystack, CharSequence needle) {
+        final int m = needle.length();
+        final int n = haystack.length();
+        if (m == 0) {
+            return 0;
+        }
+        if (m > n) {
+            return -1;
+        }
+        if (m < MIN_SKIP_LENGTH) {
+            if (haystack instanceof String) {
+                return ((String) haystack).indexOf(needle.toString());
+            }
+            return naiveIndexOf(haystack, needle, n, m);
+        }
+        return horspoolIndexOf(haystack, needle, n, m);
+    }
+
+    private static int naiveIndexOf(CharSequence haystack, CharSequence needle, int n, int m) {
+        final char first = needle.charAt(0);
+        for (int i = 0; i <= n - m; i++) {
+            if (haystack.charAt(i) == first && matchesAt(haystack, needle, i, 1, m)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int horspoolIndexOf(CharSequence haystack, CharSequence needle, int n, int m) {
+        // characters share a slot by their low byte, the smallest shift of a slot is safe for all of them
+        final int[] shift = new int[TABLE_SIZE];
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[needle.charAt(i) & (TABLE_SIZE - 1)] = m - 1 - i;
+        }
+        final char last = needle.charAt(m - 1);
+        int i = 0;
+        while (i <= n - m) {
+            final char c = haystack.charAt(i + m - 1);
+            if (c == last && matchesAt(haystack, needle, i, 0, m - 1)) {
+                return i;
+            }
+            i += shift[c & (TABLE_SIZE - 1)];
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(CharSequence haystack, CharSequence needle, int offset, int from, int to) {
+        for (int j = from; j < to; j++) {
+            if (haystack.charAt(offset + j) != needle.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,267 @@
+package com.netopyr.caj;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compares the lines of two files regardless of their order. Files that are larger than
+ * {@value #PARTITION_SIZE} bytes are hash-partitioned into spill files in a temporary directory first, so
+ * equal lines end up in partitions with the same number. Partitions that are still too large are partitioned
+ * again with another hash, so only the lines of one partition of at most about {@value #PARTITION_SIZE} bytes
+ * are held in memory at a time, however large the files are.
+ *
+ * <p>Lines are read as ISO-8859-1, which maps every byte to one character, and they are only split at
+ * {@code '\n'}, so lines are compared byte by byte whatever their encoding, and a {@code '\r'} in front of
+ * a {@code '\n'} is part of the line. A missing line break at the end of a file is ignored. The lines in the
+ * report are decoded as UTF-8.
+ */
+final class UnorderedLines {
+
+    /** The number of bytes per partition that is aimed at. */
+    static final long PARTITION_SIZE = 1L << 26;
+
+    /** The maximum number of partitions per split, each of them needs an open file while partitioning. */
+    static final int MAX_PARTITIONS = 512;
+
+    /** The maximum number of times a partition is split again. */
+    private static final int MAX_DEPTH = 8;
+
+    /** The maximum number of missing and extra lines that are shown. */
+    static final int MAX_SAMPLES = 10;
+
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private UnorderedLines() {}
+
+    /**
+     * Compares the lines of two files as multisets, i.e. a line that appears twice in one file has to appear
+     * twice in the other file.
+     *
+     * @return the differences or {@code null} if the files have the same lines
+     */
+    static Difference compare(Path actual, Path expected) {
+        return compare(actual, expected, PARTITION_SIZE);
+    }
+
+    /**
+     * @param partitionSize the number of bytes per partition that is aimed at
+     * @see #compare(Path, Path)
+     */
+    static Difference compare(Path actual, Path expected, long partitionSize) {
+        final Difference difference = new Difference();
+        try {
+            if (Math.max(FileContent.size(actual), FileContent.size(expected)) <= partitionSize) {
+                compare(actual, expected, difference);
+            } else {
+                final Path directory = Files.createTempDirectory("caj-lines");
+                try {
+                    split(actual, expected, directory, "", partitionSize, 0, difference);
+                } finally {
+                    delete(directory);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return difference.missing == 0 && difference.extra == 0? null : difference;
+    }
+
+    /**
+     * Partitions both files and compares the partitions one by one. A partition that is larger than the
+     * partition size is split again, unless the last split did not make it smaller, i.e. it consists of
+     * copies of a few lines, which take little memory.
+     */
+    private static void split(Path actual, Path expected, Path directory, String name, long partitionSize, int depth,
+                              Difference difference) throws IOException {
+        final long size = Math.max(FileContent.size(actual), FileContent.size(expected));
+        final int partitions = (int) Math.min(MAX_PARTITIONS, (size + partitionSize - 1) / partitionSize);
+        final List<Path> actualPartitions = partition(actual, directory, name + "a", partitions, depth);
+        final List<Path> expectedPartitions = partition(expected, directory, name + "e", partitions, depth);
+        for (int i = 0; i < partitions; i++) {
+            final Path a = actualPartitions.get(i);
+            final Path e = expectedPartitions.get(i);
+            final long partSize = Math.max(Files.size(a), Files.size(e));
+            if (partSize > partitionSize && partSize < size && depth < MAX_DEPTH) {
+                split(a, e, directory, name + i + "-", partitionSize, depth + 1, difference);
+            } else {
+                compare(a, e, difference);
+            }
+            Files.delete(a);
+            Files.delete(e);
+        }
+    }
+
+    private static List<Path> partition(Path file, Path directory, String name, int partitions, int depth) throws IOException {
+        final List<Path> paths = new ArrayList<>(partitions);
+        final BufferedWriter[] writers = new BufferedWriter[partitions];
+        try (LineReader reader = new LineReader(file)) {
+            for (int i = 0; i < partitions; i++) {
+                paths.add(directory.resolve(name + i));
+                writers[i] = Files.newBufferedWriter(paths.get(i), StandardCharsets.ISO_8859_1);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final BufferedWriter writer = writers[partition(line, partitions, depth)];
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            for (final BufferedWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the partition of a line. Every depth uses another hash, so lines that shared a partition
+     * are spread when it is split again, even if their {@code hashCode()} is the same.
+     */
+    private static int partition(String line, int partitions, int depth) {
+        long hash = depth * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < line.length(); i++) {
+            hash = (hash + line.charAt(i)) * 0xBF58476D1CE4E5B9L;
+        }
+        hash ^= hash >>> 31;
+        return (int) ((hash >>> 1) % partitions);
+    }
+
+    private static void compare(Path actual, Path expected, Difference difference) throws IOException {
+        final Map<String, int[]> counts = new HashMap<>();
+        String line;
+        try (LineReader reader = new LineReader(expected)) {
+            while ((line = reader.readLine()) != null) {
+                counts.computeIfAbsent(line, key -> new int[1])[0]++;
+            }
+        }
+        try (LineReader reader = new LineReader(actual)) {
+            while ((line = reader.readLine()) != null) {
+                final int[] count = counts.get(line);
+                if (count != null && count[0] > 0) {
+                    count[0]--;
+                } else {
+                    difference.addExtra(line);
+                }
+            }
+        }
+        for (final Map.Entry<String, int[]> entry : counts.entrySet()) {
+            for (int i = 0; i < entry.getValue()[0]; i++) {
+                difference.addMissing(entry.getKey());
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Reads the lines of a file as ISO-8859-1, split only at {@code '\n'}.
+     */
+    private static final class LineReader implements Closeable {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+
+        private LineReader(Path file) throws IOException {
+            reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1);
+        }
+
+        /** @return the next line without its line break or {@code null} at the end of the file */
+        private String readLine() throws IOException {
+            line.setLength(0);
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return line.length() > 0? line.toString() : null;
+                    }
+                }
+                final int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                line.append(buffer, start, position - start);
+                if (position < limit) {
+                    position++;
+                    return line.toString();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * The number of missing and extra lines and a sample of them.
+     */
+    static final class Difference {
+        private long missing;
+        private long extra;
+        private final List<String> missingSamples = new ArrayList<>();
+        private final List<String> extraSamples = new ArrayList<>();
+
+        private Difference() {}
+
+        private void addMissing(String line) {
+            if (missing++ < MAX_SAMPLES) {
+                missingSamples.add(line);
+            }
+        }
+
+        private void addExtra(String line) {
+            if (extra++ < MAX_SAMPLES) {
+                extraSamples.add(line);
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder()
+                    .append(lines(missing)).append(" missing and ").append(lines(extra)).append(" extra")
+                    .append("\ndifferences (- expected, + actual):");
+            append(builder, "- ", missingSamples, missing);
+            append(builder, "+ ", extraSamples, extra);
+            return builder.toString();
+        }
+
+        private static String lines(long count) {
+            return count == 1? "1 line is" : count + " lines are";
+        }
+
+        private static void append(StringBuilder builder, String marker, List<String> samples, long count) {
+            for (final String sample : samples) {
+                final String line = new String(sample.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+                builder.append("\n  ").append(marker).append(Assertion.formatValue(line));
+            }
+            if (count > samples.size()) {
+                builder.append("\n  ... and ").append(count - samples.size()).append(" more");
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.netopyr.caj;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.BaseStream;
+
+/**
+ * Formats the values that are shown in failure messages.
+ *
+ * <p>Strings and other {@code CharSequence}s are quoted, patterns are shown as {@code /regex/flags},
+ * arrays, collections and maps are formatted element by element with the same rules. The remaining bytes of
+ * a {@code ByteBuffer} are shown like a {@code byte[]}. Streams and iterators are not consumed, they are
+ * shown as {@code a stream} and {@code an iterator}. The output is bounded: at most
+ * {@code maxElements} elements of every array, collection or map are shown, containers nested deeper
+ * than {@code maxDepth} are abbreviated, and the output is cut after {@code maxLength} characters.
+ * Omitted parts are replaced with an ellipsis. A container that contains itself is shown
+ * abbreviated, too.
+ *
+ * <pre>
+ *     ValueFormatter.setDefault(new ValueFormatter(1000, 10, 100_000));
+ * </pre>
+ */
+public final class ValueFormatter {
+
+    private static final String ELLIPSIS = "...";
+
+    private static volatile ValueFormatter defaultFormatter = new ValueFormatter(100, 8, 10_000);
+
+    private final int maxElements;
+    private final int maxDepth;
+    private final int maxLength;
+
+    /**
+     * Creates a formatter with the given limits.
+     *
+     * @param maxElements the maximum number of elements shown per array, collection or map
+     * @param maxDepth the maximum nesting of arrays, collections and maps
+     * @param maxLength the number of characters after which the output is cut
+     */
+    public ValueFormatter(int maxElements, int maxDepth, int maxLength) {
+        if (maxElements < 0 || maxDepth < 0 || maxLength < 0) {
+            throw new IllegalArgumentException("limits must not be negative");
+        }
+        this.maxElements = maxElements;
+        this.maxDepth = maxDepth;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the formatter that is used for failure messages.
+     *
+     * @return the formatter used for failure messages
+     */
+    public static ValueFormatter getDefault() {
+        return defaultFormatter;
+    }
+
+    /**
+     * Sets the formatter that is used for failure messages.
+     *
+     * @param formatter the formatter used for failure messages
+     */
+    public static void setDefault(ValueFormatter formatter) {
+        if (formatter == null) {
+            throw new IllegalArgumentException("formatter is required");
+        }
+        defaultFormatter = formatter;
+    }
+
+    /**
+     * Formats a value into a String.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    public String format(Object value) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            format(value, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Formats a value and writes it to an {@code Appendable}.
+     *
+     * @param value the value to format
+     * @param out the target of the formatted value
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void format(Object value, Appendable out) throws IOException {
+        write(value, new Output(out, maxLength), 0, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private void write(Object value, Output out, int depth, Set<Object> visited) throws IOException {
+        if (value instanceof String) {
+            out.append("\"").append((String) value).append("\"");
+        } else if (value instanceof CharSequence) {
+            // only the part that fits is copied out of a large StringBuilder or CharBuffer
+            final CharSequence chars = (CharSequence) value;
+            out.append("\"").append(chars.subSequence(0, Math.min(chars.length(), maxLength + 1)).toString()).append("\"");
+        } else if (value instanceof Pattern) {
+            writePattern((Pattern) value, out);
+        } else if (value instanceof ByteBuffer) {
+            writeBytes((ByteBuffer) value, out);
+        } else if (value instanceof BaseStream) {
+            out.append("a stream");
+        } else if (value instanceof Iterator) {
+            out.append("an iterator");
+        } else if (value != null && value.getClass().isArray()) {
+            final int n = Array.getLength(value);
+            if (enter(value, "[", "]", out, depth, visited)) {
+                for (int i = 0; i < n && !out.isFull(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    if (i == maxElements) {
+                        out.append(ELLIPSIS);
+                        break;
+                    }
+                    write(Array.get(value, i), out, depth + 1, visited);
+                }
+                leave(value, "]", out, visited);
+            }
+        } else if (value instanceof Collection) {
+            if (enter(value, "[", "]", out, depth, visited)) {
+                final Iterator<?> iterator = ((Collection<?>) value).iterator();
+                for (int i = 0; iterator.hasNext() && !out.isFull(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    if (i == maxElements) {
+                        out.append(ELLIPSIS);
+                        break;
+                    }
+                    write(iterator.next(), out, depth + 1, visited);
+                }
+                leave(value, "]", out, visited);
+            }
+        } else if (value instanceof Map) {
+            if (enter(value, "{", "}", out, depth, visited)) {
+                final Iterator<? extends Map.Entry<?, ?>> iterator = ((Map<?, ?>) value).entrySet().iterator();
+                for (int i = 0; iterator.hasNext() && !out.isFull(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    if (i == maxElements) {
+                        out.append(ELLIPSIS);
+                        break;
+                    }
+                    final Map.Entry<?, ?> entry = iterator.next();
+                    write(entry.getKey(), out, depth + 1, visited);
+                    out.append("=");
+                    write(entry.getValue(), out, depth + 1, visited);
+                }
+                leave(value, "}", out, visited);
+            }
+        } else {
+            out.append(String.valueOf(value));
+        }
+    }
+
+    private boolean enter(Object container, String open, String close, Output out, int depth, Set<Object> visited)
+            throws IOException {
+        if (depth >= maxDepth || !visited.add(container)) {
+            out.append(open).append(ELLIPSIS).append(close);
+            return false;
+        }
+        out.append(open);
+        return true;
+    }
+
+    private static void leave(Object container, String close, Output out, Set<Object> visited) throws IOException {
+        out.append(close);
+        visited.remove(container);
+    }
+
+    private void writeBytes(ByteBuffer bytes, Output out) throws IOException {
+        out.append("[");
+        for (int i = bytes.position(); i < bytes.limit() && !out.isFull(); i++) {
+            if (i > bytes.position()) {
+                out.append(", ");
+            }
+            if (i - bytes.position() == maxElements) {
+                out.append(ELLIPSIS);
+                break;
+            }
+            out.append(Byte.toString(bytes.get(i)));
+        }
+        out.append("]");
+    }
+
+    private static void writePattern(Pattern pattern, Output out) throws IOException {
+        out.append("/").append(pattern.pattern()).append("/");
+        final int flags = pattern.flags();
+        if ((flags & Pattern.UNIX_LINES) != 0) {
+            out.append("d");
+        }
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+            out.append("i");
+        }
+        if ((flags & Pattern.COMMENTS) != 0) {
+            out.append("x");
+        }
+        if ((flags & Pattern.MULTILINE) != 0) {
+            out.append("m");
+        }
+        if ((flags & Pattern.DOTALL) != 0) {
+            out.append("s");
+        }
+        if ((flags & Pattern.UNICODE_CASE) != 0) {
+            out.append("u");
+        }
+        if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0) {
+            out.append("U");
+        }
+    }
+
+    /**
+     * Keeps track of the remaining characters and cuts the output once the limit is reached.
+     */
+    private static final class Output {
+        private final Appendable out;
+        private int remaining;
+        private boolean full;
+
+        private Output(Appendable out, int remaining) {
+            this.out = out;
+            this.remaining = remaining;
+        }
+
+        private Output append(String s) throws IOException {
+            if (full) {
+                return this;
+            }
+            if (s.length() <= remaining) {
+                out.append(s);
+                remaining -= s.length();
+            } else {
+                out.append(s, 0, remaining).append(ELLIPSIS);
+                remaining = 0;
+                full = true;
+            }
+            return this;
+        }
+
+        private boolean isFull() {
+            return full;
+        }
+    }
+}
@@ -2,13 +2,35 @@ package com.netopyr.caj;
 
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.regex.Pattern;
 
 import static com.netopyr.caj.Caj.expect;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.testng.Assert.fail;
 
 public class AssertionTest {
@@ -28,6 +50,104 @@ public class AssertionTest {
         expect("test").to.be.a(String.class);
     }
 
+    @Test
+    public void shouldShareModifiers() {
+        final Assertion assertion = expect("test");
+        assertThat(assertion.not.deep, is(sameInstance(assertion.deep.not)));
+        assertThat(assertion.length.not.any, is(sameInstance(assertion.any.not.length)));
+        assertThat(assertion.not.not, is(sameInstance(assertion.not)));
+        assertThat(assertion.include, is(sameInstance(assertion.contains)));
+        assertThat(assertion.to.be, is(sameInstance(assertion)));
+    }
+
+    @Test
+    public void shouldBeReusable() {
+        final Assertion assertion = expect("asd");
+
+        expectAssertionError(
+                () -> assertion.to.have.length(4, "first"),
+                "first: expected \"asd\" to have a length of 4 but got 3"
+        );
+        assertion.to.have.length(3);
+        expectAssertionError(
+                () -> assertion.not.to.have.property("length", 3, "second"),
+                "second: expected \"asd\" to not have a property \"length\" of 3"
+        );
+        assertion.not.to.have.property("length", 4);
+        expectAssertionError(
+                () -> assertion.to.have.length(4),
+                "expected \"asd\" to have a length of 4 but got 3"
+        );
+
+        final Assertion shared = expect(new Integer[] {1, 2, 3});
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            shared.to.have.length(3);
+            shared.not.to.include(i + 4);
+        });
+    }
+
+    @Test
+    public void shouldFormatValuesOnlyOnFailure() {
+        final Object unformattable = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("formatted a passing assertion");
+            }
+        };
+        final Map<String, Object> map = new HashMap<>();
+        map.put("foo", unformattable);
+
+        expect(map).to.include(Collections.singletonMap("foo", unformattable));
+        expect(map).to.have.property("[foo]", unformattable);
+        expect(unformattable).to.satisfy(value -> true);
+        expect(5).to.be.within(4, 6);
+        expect(5.0).to.be.closeTo(5.1, 0.2);
+        expect(map).to.have.keys("foo");
+        expect(map).not.to.have.keys("bar");
+    }
+
+    @Test
+    public void shouldInsertFormattedValuesVerbatim() {
+        expectAssertionError(
+                () -> expect("#{exp}").to.equal("$1 \\ #{this}", "#{act}"),
+                "#{act}: expected \"#{exp}\" to equal \"$1 \\ #{this}\""
+        );
+    }
+
+    @Test
+    public void shouldBoundFormattedValues() {
+        final ValueFormatter formatter = new ValueFormatter(3, 2, 30);
+        assertThat(formatter.format(new int[] {1, 2, 3, 4, 5}), is("[1, 2, 3, ...]"));
+        assertThat(formatter.format(Arrays.asList("a", Collections.singletonMap("b", 1))), is("[\"a\", {\"b\"=1}]"));
+        assertThat(formatter.format(new Object[] {new Object[] {new Object[] {1}}}), is("[[[...]]]"));
+        assertThat(formatter.format("abcdefghijklmnopqrstuvwxyz0123456789"), is("\"abcdefghijklmnopqrstuvwxyz012..."));
+
+        final Object[] cyclic = new Object[2];
+        cyclic[0] = "x";
+        cyclic[1] = cyclic;
+        final List<Object> list = new ArrayList<>();
+        list.add(list);
+        assertThat(formatter.format(cyclic), is("[\"x\", [...]]"));
+        assertThat(formatter.format(list), is("[[...]]"));
+
+        expectAssertionError(
+                () -> expect(new int[1_000_000]).to.have.length(3),
+                "expected [0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, "
+                        + "0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, "
+                        + "0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, "
+                        + "0, 0, 0, 0, 0, 0, 0, 0, 0, 0, ...] to have a length of 3 but got 1000000"
+        );
+    }
+
+    @Test
+    public void shouldCachePropertyAccessors() {
+        assertThat(PropertyAccessor.of(String.class, "length"), is(sameInstance(PropertyAccessor.of(String.class, "length"))));
+        assertThat(PropertyAccessor.of(String.class, "length").get("foo"), is(3));
+        assertThat(PropertyAccessor.of(String.class, "empty").get(""), is(true));
+        assertThat(PropertyAccessor.of(String.class, "foo"), is(sameInstance(PropertyAccessor.of(String.class, "foo"))));
+        assertThat(PropertyAccessor.of(String.class, "foo").get("foo"), is(sameInstance(PropertyAccessor.NO_PROPERTY)));
+    }
+
     @Test
     public void shouldDoSimpleEqualAssertion() {
         expect("foo").to.equal("foo");
@@ -259,6 +379,49 @@ public class AssertionTest {
         );
     }
 
+    @Test
+    public void shouldCheckPrimitives() {
+        final IntAssertion intAssertion = expect(5);
+        intAssertion.to.be.within(5, 10);
+        intAssertion.to.be.within(4.5, 5.5);
+        intAssertion.not.to.be.above(5L);
+        intAssertion.to.be.a(Integer.class);
+        intAssertion.to.equal(5);
+
+        final LongAssertion longAssertion = expect(5_000_000_000L);
+        longAssertion.to.be.above(4_999_999_999L);
+        longAssertion.to.be.at.most(5_000_000_000L);
+        longAssertion.to.be.closeTo(5_000_000_010L, 10L);
+        longAssertion.to.be.a(Long.class);
+
+        final DoubleAssertion doubleAssertion = expect(5.5);
+        doubleAssertion.to.be.below(5.6);
+        doubleAssertion.to.be.at.least(5.5);
+        doubleAssertion.to.be.within(5, 5);
+        doubleAssertion.not.to.be.within(5.6, 6.0);
+        doubleAssertion.to.be.a(Double.class);
+
+        expect('c').to.be('c');
+        expect((byte) 1).to.be((byte) 1);
+        expect((short) 1).to.be((short) 1);
+        expect(1.5f).to.be(1.5f);
+
+        expectAssertionError(
+                () -> expect(5_000_000_000L).to.be.below(5, "blah"),
+                "blah: expected 5000000000 to be below 5"
+        );
+
+        expectAssertionError(
+                () -> expect(5.5).not.to.be.closeTo(5.0, 0.5, "blah"),
+                "blah: expected 5.5 not to be close to 5.0 +/- 0.5"
+        );
+
+        expectAssertionError(
+                () -> expect(5).to.have.length.above(2, "blah"),
+                "blah: expected 5 to be an array, Collection, Map or String"
+        );
+    }
+
     @Test
     public void shouldCheckMatch() {
         expect("foobar").to.match("^foo");
@@ -310,6 +473,562 @@ public class AssertionTest {
         );
     }
 
+    @Test
+    public void checkDeepEqualNested() {
+        final Map<String, Object> order1 = new HashMap<>();
+        order1.put("items", Arrays.asList(new int[]{1, 2}, new int[]{3, 4}));
+        final Map<String, Object> order2 = new HashMap<>();
+        order2.put("items", Arrays.asList(new int[]{1, 2}, new int[]{3, 5}));
+        expect(new Object[]{"a", order1}).to.eql(new Object[]{"a", copy(order1)});
+        expect(Arrays.asList(order1)).to.not.eql(Arrays.asList(order2));
+
+        expectAssertionError(
+                () -> expect(new Object[]{"a", order1}).to.eql(new Object[]{"a", order2}, "blah"),
+                "blah: expected [\"a\", {\"items\"=[[1, 2], [3, 4]]}] to deeply equal [\"a\", {\"items\"=[[1, 2], [3, 5]]}], but at [1].items[1][1] it has 4 instead of 5"
+        );
+
+        expectAssertionError(
+                () -> expect(Collections.singletonMap("a b", 1)).to.eql(Collections.singletonMap("c", 1)),
+                "expected {\"a b\"=1} to deeply equal {\"c\"=1}, but the key \"c\" is missing"
+        );
+
+        final List<Object> cycle1 = new ArrayList<>();
+        cycle1.add(cycle1);
+        final List<Object> cycle2 = new ArrayList<>();
+        cycle2.add(cycle2);
+        expect(cycle1).to.eql(cycle2);
+
+        Object nested1 = "leaf";
+        Object nested2 = "leaf";
+        for (int i = 0; i < 10_000; i++) {
+            nested1 = new Object[]{nested1};
+            nested2 = Collections.singletonList(nested2);
+        }
+        expect(new Object[]{nested1}).to.eql(new Object[]{((Object[]) nested1).clone()});
+        expect(nested2).to.eql(Collections.singletonList(((List<?>) nested2).get(0)));
+    }
+
+    @Test
+    public void checkDiffReport() {
+        final List<Integer> expected = IntStream.range(0, 12).boxed().collect(Collectors.toList());
+        final List<Integer> actual = new ArrayList<>(expected);
+        actual.set(5, 50);
+        actual.remove(8);
+
+        expectAssertionError(
+                () -> expect(actual).to.equal(expected),
+                "expected [0, 1, 2, 3, 4, 50, 6, 7, 9, 10, 11] to equal [0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11]\ndifferences (- expected, + actual):\n  - [5] 5\n  + [5] 50\n  - [8] 8"
+        );
+
+        expectAssertionError(
+                () -> expect(expected).to.equal(expected.toArray()),
+                "expected [0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11] to equal [0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11]\nno element differs, the values differ only in type or identity"
+        );
+
+        final Map<String, Integer> expectedMap = new TreeMap<>();
+        for (int i = 0; i < 11; i++) {
+            expectedMap.put("k" + i, i);
+        }
+        final Map<String, Integer> actualMap = new TreeMap<>(expectedMap);
+        actualMap.remove("k1");
+        actualMap.put("k2", 20);
+        actualMap.put("x", 1);
+
+        expectAssertionError(
+                () -> expect(actualMap).to.eql(expectedMap),
+                "expected {\"k0\"=0, \"k10\"=10, \"k2\"=20, \"k3\"=3, \"k4\"=4, \"k5\"=5, \"k6\"=6, \"k7\"=7, \"k8\"=8, \"k9\"=9, \"x\"=1} to deeply equal {\"k0\"=0, \"k1\"=1, \"k10\"=10, \"k2\"=2, \"k3\"=3, \"k4\"=4, \"k5\"=5, \"k6\"=6, \"k7\"=7, \"k8\"=8, \"k9\"=9}, but the key \"k1\" is missing\ndifferences (- expected, + actual):\n  - [\"k1\"] 1\n  ~ [\"k2\"] 20 instead of 2\n  + [\"x\"] 1"
+        );
+
+        expectAssertionError(
+                () -> expect(expected).to.not.equal(new ArrayList<>(expected)),
+                "expected [0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11] to not equal [0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11]"
+        );
+
+        final int[] many = IntStream.range(0, 3000).toArray();
+        final int[] reversed = IntStream.range(0, 3000).map(i -> 2999 - i).toArray();
+        try {
+            expect(many).to.eql(reversed);
+            fail("Should have thrown a java.lang.AssertionError");
+        } catch (AssertionError err) {
+            assertThat(err.getMessage(), endsWith("\n  more than 1000 differences or more than 200 ms to find them, the first one is at [0]"));
+        }
+    }
+
+    @Test
+    public void checkParallelEquality() {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParallelEquality.setDefault(new ParallelEquality(1000, executor));
+            final int[] numbers = IntStream.range(0, 100_000).toArray();
+            final int[] changed = numbers.clone();
+            changed[70_000] = -1;
+            changed[90_000] = -1;
+            final List<int[]> rows = IntStream.range(0, 50_000).mapToObj(i -> new int[]{i, i}).collect(Collectors.toList());
+            final List<int[]> changedRows = rows.stream().map(int[]::clone).collect(Collectors.toList());
+            changedRows.get(40_000)[1] = -1;
+
+            expect(numbers).to.eql(numbers.clone());
+            expect(numbers).to.not.eql(changed);
+            expect(rows).to.deep.equal(rows.stream().map(int[]::clone).collect(Collectors.toList()));
+
+            try {
+                expect(numbers).to.eql(changed);
+                fail("Should have thrown a java.lang.AssertionError");
+            } catch (AssertionError err) {
+                assertThat(err.getMessage(), containsString(", but at [70000] it has 70000 instead of -1\n"));
+            }
+            try {
+                expect(rows).to.eql(changedRows);
+                fail("Should have thrown a java.lang.AssertionError");
+            } catch (AssertionError err) {
+                assertThat(err.getMessage(), containsString(", but at [40000][1] it has 40000 instead of -1\n"));
+            }
+        } finally {
+            ParallelEquality.setDefault(null);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void checkParallelEqualityBelowTheMinimumChunk() {
+        final AtomicInteger tasks = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParallelEquality.setDefault(new ParallelEquality(1000, task -> {
+                tasks.incrementAndGet();
+                executor.execute(task);
+            }));
+            final float[] numbers = new float[1000];
+            final float[] changed = numbers.clone();
+            changed[700] = -1;
+
+            expect(numbers).to.eql(numbers.clone());
+            expect(tasks.get()).to.be.above(0);
+
+            try {
+                expect(numbers).to.eql(changed);
+                fail("Should have thrown a java.lang.AssertionError");
+            } catch (AssertionError err) {
+                assertThat(err.getMessage(), containsString(", but at [700] it has 0.0 instead of -1.0\n"));
+            }
+        } finally {
+            ParallelEquality.setDefault(null);
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeOut = 10_000)
+    public void checkParallelEqualityOnItsOwnExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ParallelEquality.setDefault(new ParallelEquality(1000, executor));
+            final int[] numbers = IntStream.range(0, 100_000).toArray();
+            final int[] changed = numbers.clone();
+            changed[70_000] = -1;
+
+            executor.submit(() -> {
+                expect(numbers).to.eql(numbers.clone());
+                expect(numbers).to.not.eql(changed);
+            }).get();
+        } finally {
+            ParallelEquality.setDefault(null);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void checkLazySources() {
+        final Iterable<Integer> naturals = () -> IntStream.iterate(0, i -> i + 1).iterator();
+        expect(naturals).to.include(1000);
+        expect(naturals).to.have.some(n -> (Integer) n > 10);
+        expect(naturals).to.not.have.every(n -> (Integer) n < 10);
+        expect(naturals).to.not.have.none(n -> (Integer) n == 10);
+        expect(naturals).to.not.have.length(3);
+        expect(naturals).to.include.members(new int[]{5, 3, 1});
+        expect(naturals).to.not.have.members(new int[]{0, 1, 2});
+        expect(Stream.of(1, 2, 3)).to.have.length(3);
+        expect(Stream.of(1, 2, 3)).to.have.every(n -> (Integer) n > 0);
+        expect(Stream.of(1, 2, 3)).to.have.none(n -> (Integer) n > 3);
+        expect(Stream.of(1, 2, 3)).to.not.include(4);
+        expect(Arrays.asList(3, 2, 1).iterator()).to.have.members(1, 2, 3);
+        expect(new int[]{1, 2, 3}).to.have.some(n -> (Integer) n == 2);
+
+        expectAssertionError(
+                () -> expect(Stream.of(1, 2, 3)).to.have.every(n -> (Integer) n < 2, "blah"),
+                "blah: expected every element of a stream to satisfy the predicate, but 2 does not"
+        );
+
+        expectAssertionError(
+                () -> expect(naturals.iterator()).to.have.length(3, "blah"),
+                "blah: expected an iterator to have a length of 3 but got more than 3"
+        );
+
+        expectAssertionError(
+                () -> expect(Stream.of(1, 2, 3)).to.have.none(n -> (Integer) n > 1),
+                "expected no element of a stream to satisfy the predicate, but 2 does"
+        );
+
+        expectAssertionError(
+                () -> expect(Stream.of(1, 2, 3)).to.include.members(new int[]{3, 4}),
+                "expected a stream to be a superset of [3, 4], but it is missing [4]"
+        );
+
+        expectAssertionError(
+                () -> expect(naturals.iterator()).to.have.members(new int[]{0, 2}),
+                "expected an iterator to have the same members as [0, 2], but it has unexpected [1]"
+        );
+
+        expectAssertionError(
+                () -> expect(42).to.have.some(n -> true),
+                "expected 42 to be an array, Iterable, Iterator or Stream"
+        );
+    }
+
+    @Test
+    public void checkBoundedLengthComparisons() {
+        final AtomicInteger consumed = new AtomicInteger();
+        final Iterable<Integer> billion = () -> IntStream.range(0, 1_000_000_000).peek(i -> consumed.incrementAndGet()).iterator();
+
+        expect(billion).to.have.length.above(10);
+        expect(billion).to.have.length.of.at.least(10);
+        expect(billion).to.not.have.length.of.at.most(10);
+        expect(billion).to.not.have.length.below(10);
+        expect(billion).to.not.have.length.within(2, 10);
+        expect(billion).to.not.be.empty();
+        assertThat(consumed.get() < 100, is(true));
+
+        final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>(Arrays.asList(1, 2, 3));
+        expect(queue).to.have.length.within(2, 4);
+        expect(queue).to.have.length.of.at.most(3);
+
+        expectAssertionError(
+                () -> expect(IntStream.range(0, 1_000_000_000)).to.have.length.of.at.most(10, "blah"),
+                "blah: expected a stream to have a length at most 10 but got more than 10"
+        );
+
+        expectAssertionError(
+                () -> expect(billion.iterator()).to.have.length.below(5),
+                "expected an iterator to have a length below 5 but got more than 4"
+        );
+    }
+
+    @Test
+    public void checkOrderAndDistinctness() {
+        expect(new long[]{1L, 2L, 2L, 5L}).to.be.increasing();
+        expect(new long[]{1L, 2L, 5L}).to.be.strictlyIncreasing();
+        expect(new long[]{1L, 2L, 2L, 5L}).to.not.be.strictlyIncreasing();
+        expect(new double[]{3.0, 2.0, 1.0}).to.be.strictlyDecreasing();
+        expect(new int[0]).to.be.strictlyIncreasing();
+        expect(Arrays.asList("a", "b", "b")).to.be.sorted();
+        expect(Arrays.asList("ccc", "bb", "a")).to.be.sorted(Comparator.comparing(String::length).reversed());
+        expect(Stream.of(3, 2, 1)).to.be.decreasing();
+        expect(new int[]{3, 1, 2}).to.have.distinct();
+        expect(new double[]{0.0, -0.0, Double.NaN}).to.have.distinct();
+        expect(Arrays.asList("a", "b", "a")).to.not.have.distinct();
+
+        expectAssertionError(
+                () -> expect(new int[]{1, 2, 2, 3}).to.be.strictlyIncreasing("blah"),
+                "blah: expected [1, 2, 2, 3] to be strictly increasing, but [2] 2 follows 2"
+        );
+
+        expectAssertionError(
+                () -> expect(Arrays.asList("a", "c", "b")).to.be.sorted(),
+                "expected [\"a\", \"c\", \"b\"] to be sorted, but [2] \"b\" follows \"c\""
+        );
+
+        expectAssertionError(
+                () -> expect(new long[]{5L, 7L, 5L}).to.have.distinct(),
+                "expected [5, 7, 5] to have distinct elements, but [2] 5 is a duplicate"
+        );
+
+        expectAssertionError(
+                () -> expect(new int[]{1, 2}).to.not.be.increasing(),
+                "expected [1, 2] to not be increasing"
+        );
+
+        expectAssertionError(
+                () -> expect(42).to.be.sorted(),
+                "expected 42 to be an array, Iterable, Iterator or Stream"
+        );
+    }
+
+    @Test
+    public void checkCharSequences() {
+        final StringBuilder report = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            report.append("line ").append(i).append('\n');
+        }
+        expect(report).to.include("line 9999\n");
+        expect(report).to.include("e 42\nline 43\nline 44");
+        expect(report).to.not.include("line 10000");
+        expect(report).to.have.string("line 0\n");
+        expect(report).to.have.length(report.length());
+        expect(CharBuffer.wrap("abcabcabdabcabcabcabd")).to.include("abcabcabcabd");
+        expect(CharBuffer.wrap("abcabcabdabcabcabcabd")).to.not.include("abcabcabcabe");
+        expect("\u0141\u0041xxxxxxxx\u0241").to.include("xxxxxxxx\u0241");
+        expect("\u0141\u0041xxxxxxxx\u0241").to.not.include("xxxxxxxx\u0141");
+
+        expectAssertionError(
+                () -> expect(new StringBuilder("foobar")).to.have.string("baz", "blah"),
+                "blah: expected \"foobar\" to contain \"baz\""
+        );
+    }
+
+    @Test
+    public void checkPatternCache() {
+        final PatternCache defaultCache = PatternCache.getDefault();
+        final PatternCache cache = new PatternCache(2);
+        PatternCache.setDefault(cache);
+        try {
+            expect("foobar").to.match("^foo");
+            expect("foobar").to.match("^foo");
+            expect("foobar").to.match("bar$");
+            expect("foobar").to.match("^foo");
+            expect("foobar").to.not.match("baz");
+            expect("foobar").to.match("bar$");
+
+            assertThat(cache.size(), is(2));
+            assertThat(cache.getHitCount(), is(2L));
+            assertThat(cache.getMissCount(), is(4L));
+            assertThat(cache.get("^foo"), is(sameInstance(cache.get("^foo"))));
+        } finally {
+            PatternCache.setDefault(defaultCache);
+        }
+    }
+
+    @Test
+    public void checkPatternCacheFromSeveralThreads() throws Exception {
+        final PatternCache cache = new PatternCache(16);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        cache.get("^" + thread + "-" + i + "$");
+                    }
+                }));
+            }
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+
+            assertThat(cache.size(), is(lessThanOrEqualTo(16)));
+            assertThat(cache.getMissCount(), is(4000L));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void checkFiles() throws IOException {
+        final Path actual = Files.createTempFile("caj", ".txt");
+        final Path expected = Files.createTempFile("caj", ".txt");
+        final Path longer = Files.createTempFile("caj", ".txt");
+        try {
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                content.append("line ").append(i).append('\n');
+            }
+            Files.write(expected, content.toString().getBytes(StandardCharsets.UTF_8));
+            Files.write(longer, (content + "more\n").getBytes(StandardCharsets.UTF_8));
+            content.setCharAt(20, 'X');
+            Files.write(actual, content.toString().getBytes(StandardCharsets.UTF_8));
+
+            expect(expected).to.have.sameContentAs(expected);
+            expect(actual).to.not.have.sameContentAs(expected);
+            expect(expected).to.not.have.sameContentAs(longer);
+            expect(expected).to.have.size(content.length());
+            expect(longer).to.have.length.above(content.length());
+            expect(expected).to.include("line 999\n");
+            expect(expected).to.include(new byte[]{'7', '\n', 'l'});
+            expect(expected).to.not.include("line 1000");
+
+            expectAssertionError(
+                    () -> expect(actual).to.have.sameContentAs(expected, "blah"),
+                    "blah: expected " + actual + " to have the same content as " + expected + ", but they differ at offset 20\n"
+                            + "actual   00000004  20 30 0a 6c 69 6e 65 20 31 0a 6c 69 6e 65 20 32 58 6c 69 6e 65 20 33 0a 6c 69 6e 65 20 34 0a 6c  | 0.line 1.line 2Xline 3.line 4.l|\n"
+                            + "expected 00000004  20 30 0a 6c 69 6e 65 20 31 0a 6c 69 6e 65 20 32 0a 6c 69 6e 65 20 33 0a 6c 69 6e 65 20 34 0a 6c  | 0.line 1.line 2.line 3.line 4.l|"
+            );
+
+            expectAssertionError(
+                    () -> expect(expected).to.have.sameContentAs(longer),
+                    "expected " + expected + " to have the same content as " + longer + ", but they differ at offset 8890 (sizes 8890 and 8895)\n"
+                            + "actual   000022aa  6e 65 20 39 39 38 0a 6c 69 6e 65 20 39 39 39 0a  |ne 998.line 999.|\n"
+                            + "expected 000022aa  6e 65 20 39 39 38 0a 6c 69 6e 65 20 39 39 39 0a 6d 6f 72 65 0a  |ne 998.line 999.more.|"
+            );
+        } finally {
+            Files.delete(actual);
+            Files.delete(expected);
+            Files.delete(longer);
+        }
+    }
+
+    @Test
+    public void checkBytes() {
+        final byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        final byte[] changed = bytes.clone();
+        changed[500] = 0;
+
+        expect(direct).to.eql(bytes);
+        expect(bytes).to.eql(direct);
+        expect(direct).to.eql(ByteBuffer.wrap(bytes));
+        expect(direct).to.deep.equal(direct.duplicate());
+        expect(direct).to.not.eql(changed);
+        expect(direct).to.have.length(1000);
+        expect(ByteBuffer.wrap(bytes, 10, 5)).to.eql(new byte[]{10, 11, 12, 13, 14});
+        expect(direct.position()).to.equal(0);
+
+        expectAssertionError(
+                () -> expect(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5})).to.eql(new byte[]{1, 2, 3, 9, 5, 6}, "blah"),
+                "blah: expected [1, 2, 3, 4, 5] to deeply equal [1, 2, 3, 9, 5, 6], but they differ at offset 3 (sizes 5 and 6)\n"
+                        + "actual   00000000  01 02 03 04 05  |.....|\n"
+                        + "expected 00000000  01 02 03 09 05 06  |......|"
+        );
+
+        try {
+            expect(direct).to.eql(changed);
+            fail("Should have thrown a java.lang.AssertionError");
+        } catch (AssertionError err) {
+            assertThat(err.getMessage(), endsWith(", but they differ at offset 500\n"
+                    + "actual   000001e4  e4 e5 e6 e7 e8 e9 ea eb ec ed ee ef f0 f1 f2 f3 f4 f5 f6 f7 f8 f9 fa fb fc fd fe ff 00 01 02 03  |................................|\n"
+                    + "expected 000001e4  e4 e5 e6 e7 e8 e9 ea eb ec ed ee ef f0 f1 f2 f3 00 f5 f6 f7 f8 f9 fa fb fc fd fe ff 00 01 02 03  |................................|"));
+        }
+
+        expectAssertionError(
+                () -> expect(Collections.singletonList(new byte[]{1, 2})).to.eql(Collections.singletonList(new byte[]{1, 3})),
+                "expected [[1, 2]] to deeply equal [[1, 3]], but at [0][1] it has 2 instead of 3"
+        );
+    }
+
+    @Test
+    public void checkUnorderedLines() throws IOException {
+        final Path actual = Files.createTempFile("caj", ".csv");
+        final Path expected = Files.createTempFile("caj", ".csv");
+        final Path changed = Files.createTempFile("caj", ".csv");
+        try {
+            final List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                lines.add(i + ",row " + (i % 100) + ",\u00e9");
+            }
+            Files.write(expected, lines, StandardCharsets.UTF_8);
+            Collections.reverse(lines);
+            Files.write(actual, lines, StandardCharsets.UTF_8);
+            lines.set(0, "1000,row 0,\u00e9");
+            lines.add("1,row 1,\u00e9");
+            Files.write(changed, lines, StandardCharsets.UTF_8);
+
+            expect(actual).to.have.sameLinesAs(expected);
+            expect(changed).to.not.have.sameLinesAs(expected);
+            expect(UnorderedLines.compare(actual, expected, 1000)).to.be(null);
+            expect(UnorderedLines.compare(actual, expected, 10)).to.be(null);
+            expect(String.valueOf(UnorderedLines.compare(changed, expected, 1000)))
+                    .to.equal(String.valueOf(UnorderedLines.compare(changed, expected)));
+
+            expectAssertionError(
+                    () -> expect(changed).to.have.sameLinesAs(expected, "blah"),
+                    "blah: expected " + changed + " to have the same lines as " + expected + ", but 1 line is missing and 2 lines are extra\n"
+                            + "differences (- expected, + actual):\n"
+                            + "  - \"999,row 99,\u00e9\"\n"
+                            + "  + \"1000,row 0,\u00e9\"\n"
+                            + "  + \"1,row 1,\u00e9\""
+            );
+            Files.write(changed, Collections.nCopies(20_000, "same"), StandardCharsets.UTF_8);
+            Files.write(actual, Collections.nCopies(20_000, "same"), StandardCharsets.UTF_8);
+            expect(UnorderedLines.compare(actual, changed, 10)).to.be(null);
+
+            Files.write(actual, "a\r\nb\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(changed, "b\na".getBytes(StandardCharsets.UTF_8));
+            expect(changed).to.not.have.sameLinesAs(actual);
+            Files.write(changed, "b\na\r".getBytes(StandardCharsets.UTF_8));
+            expect(changed).to.have.sameLinesAs(actual);
+
+            expectAssertionError(
+                    () -> expect("orders.csv").to.have.sameLinesAs(expected),
+                    "expected \"orders.csv\" to be an instance of interface java.nio.file.Path"
+            );
+        } finally {
+            Files.delete(actual);
+            Files.delete(expected);
+            Files.delete(changed);
+        }
+    }
+
+    @Test
+    public void checkStreams() {
+        final byte[] bytes = new byte[200_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        final byte[] changed = bytes.clone();
+        changed[StreamContent.BUFFER_SIZE] = 1;
+        final byte[] abc = "abc".getBytes(StandardCharsets.US_ASCII);
+        final String sha256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+        expect(new ByteArrayInputStream(bytes)).to.have.sameContentAs(new ByteArrayInputStream(bytes));
+        expect(Channels.newChannel(new ByteArrayInputStream(bytes))).to.have.sameContentAs(new ByteArrayInputStream(bytes));
+        expect(new ByteArrayInputStream(bytes)).to.not.have.sameContentAs(Channels.newChannel(new ByteArrayInputStream(changed)));
+        expect(new ByteArrayInputStream(bytes)).to.have.length(200_000);
+        expect(new ByteArrayInputStream(bytes)).to.have.length.within(1, 200_000);
+        expect(new ByteArrayInputStream(bytes)).to.have.length.above(10);
+        final ByteArrayInputStream partlyRead = new ByteArrayInputStream(bytes);
+        expect(partlyRead).to.have.length.above(10);
+        expect(partlyRead.available()).to.equal(bytes.length - 11);
+        expect(new ByteArrayInputStream(new byte[0])).to.be.empty();
+        expect(new ByteArrayInputStream(abc)).to.have.digest("SHA-256").that.equal(sha256);
+        expect(Channels.newChannel(new ByteArrayInputStream(abc))).to.have.digest("SHA-256").that.equal(sha256);
+        expect(abc).to.have.digest("SHA-256").that.equal(sha256);
+
+        try {
+            expect(new ByteArrayInputStream(bytes)).to.have.sameContentAs(new ByteArrayInputStream(changed));
+            fail("Should have thrown a java.lang.AssertionError");
+        } catch (AssertionError err) {
+            assertThat(err.getMessage(), endsWith(", but they differ at offset 65536\n"
+                    + "actual   0000fff0  f0 f1 f2 f3 f4 f5 f6 f7 f8 f9 fa fb fc fd fe ff 00 01 02 03 04 05 06 07 08 09 0a 0b 0c 0d 0e 0f  |................................|\n"
+                    + "expected 0000fff0  f0 f1 f2 f3 f4 f5 f6 f7 f8 f9 fa fb fc fd fe ff 01 01 02 03 04 05 06 07 08 09 0a 0b 0c 0d 0e 0f  |................................|"));
+        }
+        try {
+            expect(new ByteArrayInputStream(abc)).to.have.sameContentAs(new ByteArrayInputStream("abcd".getBytes(StandardCharsets.US_ASCII)));
+            fail("Should have thrown a java.lang.AssertionError");
+        } catch (AssertionError err) {
+            assertThat(err.getMessage(), endsWith(", but they differ at offset 3 (the actual content ends there)\n"
+                    + "actual   00000000  61 62 63  |abc|\n"
+                    + "expected 00000000  61 62 63 64  |abcd|"));
+        }
+        try {
+            expect(new ByteArrayInputStream(bytes)).to.have.length.below(1000, "blah");
+            fail("Should have thrown a java.lang.AssertionError");
+        } catch (AssertionError err) {
+            assertThat(err.getMessage(), containsString("have a length below 1000 but got more than 999"));
+        }
+        expectAssertionError(
+                () -> expect(abc).to.have.digest("SHA-256").that.equal("0000"),
+                "expected \"" + sha256 + "\" to equal \"0000\""
+        );
+        expectAssertionError(
+                () -> expect("abc").to.have.digest("SHA-256", "blah"),
+                "blah: expected \"abc\" to be an InputStream, ReadableByteChannel, byte[] or ByteBuffer"
+        );
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> map) {
+        final Map<String, Object> result = new HashMap<>();
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            final List<int[]> items = new ArrayList<>();
+            for (final Object item : (List<?>) entry.getValue()) {
+                items.add(((int[]) item).clone());
+            }
+            result.put(entry.getKey(), items);
+        }
+        return result;
+    }
+
     @Test
     public void shouldCheckEqual() {
         expect("test").to.equal("test");
@@ -509,6 +1228,103 @@ public class AssertionTest {
         );
     }
 
+    @Test
+    public void checkPropertyPath() {
+        class Line {
+            public int price = 42;
+        }
+        class Order {
+            public List<Line> lines = Arrays.asList(new Line(), new Line());
+            public Map<String, Line> byName = Collections.singletonMap("first", new Line());
+
+            @Override
+            public String toString() {
+                return "class Order";
+            }
+        }
+        final Order[] orders = {new Order(), new Order()};
+        final PropertyPath price = Caj.path("[1].lines[0].price");
+
+        assertThat(price, is(sameInstance(Caj.path("[1].lines[0].price"))));
+        assertThat(price.toString(), is("[1].lines[0].price"));
+        expect(orders).to.have.property(price, 42);
+        expect(orders).to.have.property(Caj.path("[0].byName[first].price")).that.equals(42);
+        expect(orders).to.not.have.property(Caj.path("[0].lines[2]"));
+        expect(orders).to.not.have.property(Caj.path("[2].lines"));
+        expect(orders).to.not.have.property(Caj.path("[0].lines[x]"));
+
+        expectAssertionError(
+                () -> expect(orders[0]).to.have.property(Caj.path("lines[1].price"), 41, "blah"),
+                "blah: expected class Order to have a property \"lines[1].price\" of 41, but got 42"
+        );
+
+        final Order withoutLines = new Order();
+        withoutLines.lines = null;
+        expect(withoutLines).to.have.property(Caj.path("lines"), null);
+        expect(withoutLines).to.not.have.property(Caj.path("lines[0].price"));
+        expectAssertionError(
+                () -> expect(withoutLines).to.have.property(Caj.path("lines[0].price"), 42),
+                "expected class Order to have a property \"lines[0].price\""
+        );
+    }
+
+    @Test
+    public void checkProperties() {
+        class Origin {
+            public String country = "Japan";
+            public String region = "Shizuoka";
+        }
+        class Tea {
+            public String name = "Sencha";
+            public Origin origin = new Origin();
+
+            @Override
+            public String toString() {
+                return "class Tea";
+            }
+        }
+        final Tea tea = new Tea();
+
+        final Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("name", "Sencha");
+        expected.put("origin.country", "Japan");
+        expected.put("origin.region", "Shizuoka");
+        expect(tea).to.have.properties(expected);
+
+        final Map<String, Object> others = new LinkedHashMap<>();
+        others.put("name", "Matcha");
+        others.put("origin.country", "China");
+        expect(tea).to.not.have.properties(others);
+
+        others.put("origin.region", "Shizuoka");
+        others.put("origin.city", "Shizuoka");
+        expectAssertionError(
+                () -> expect(tea).to.have.properties(others, "blah"),
+                "blah: expected class Tea to have properties {\"name\"=\"Matcha\", \"origin.country\"=\"China\", "
+                        + "\"origin.region\"=\"Shizuoka\", \"origin.city\"=\"Shizuoka\"}, "
+                        + "but \"name\" was \"Sencha\", \"origin.country\" was \"Japan\", \"origin.city\" does not exist"
+        );
+        expectAssertionError(
+                () -> expect(tea).to.not.have.properties(others),
+                "expected class Tea to not have properties {\"name\"=\"Matcha\", \"origin.country\"=\"China\", "
+                        + "\"origin.region\"=\"Shizuoka\", \"origin.city\"=\"Shizuoka\"}, "
+                        + "but \"origin.region\" was \"Shizuoka\", \"origin.city\" does not exist"
+        );
+
+        final Tea unknownOrigin = new Tea();
+        unknownOrigin.origin = null;
+        final Map<String, Object> withOrigin = new LinkedHashMap<>();
+        withOrigin.put("origin.country", "Japan");
+        withOrigin.put("origin.region", "Shizuoka");
+        withOrigin.put("name", "Matcha");
+        expectAssertionError(
+                () -> expect(unknownOrigin).to.have.properties(withOrigin),
+                "expected class Tea to have properties {\"origin.country\"=\"Japan\", \"origin.region\"=\"Shizuoka\", "
+                        + "\"name\"=\"Matcha\"}, but \"origin.country\" does not exist, \"origin.region\" does not exist, "
+                        + "\"name\" was \"Sencha\""
+        );
+    }
+
     @Test
     public void checkString() {
         expect("foobar").to.have.string("bar");
@@ -517,7 +1333,7 @@ public class AssertionTest {
 
         expectAssertionError(
                 () -> expect(3).to.have.string("baz"),
-                "expected 3 to be an instance of class java.lang.String"
+                "expected 3 to be an instance of interface java.lang.CharSequence"
         );
 
         expectAssertionError(
@@ -574,17 +1390,58 @@ public class AssertionTest {
 
         expectAssertionError(
                 () -> expect(a1).to.include(b2),
-                "expected {a=1} to include {b=2}"
+                "expected {\"a\"=1} to include {\"b\"=2}"
         );
 
         expectAssertionError(
                 () -> expect(a1b2).to.not.include(b2),
-                "expected {a=1, b=2} to not include {b=2}"
+                "expected {\"a\"=1, \"b\"=2} to not include {\"b\"=2}"
         );
 
         expectAssertionError(
                 () -> expect(new Map[]{a1, b2}).to.not.include(b2),
-                "expected [{a=1}, {b=2}] to not include {b=2}"
+                "expected [{\"a\"=1}, {\"b\"=2}] to not include {\"b\"=2}"
+        );
+    }
+
+    @Test
+    public void checkPrimitiveArrays() {
+        expect(new int[]{1, 2, 3}).to.include(3);
+        expect(new int[]{1, 2, 3}).to.not.include(3L);
+        expect(new long[]{1L, 2L}).to.include(2L);
+        expect(new double[]{1.5, Double.NaN}).to.include(Double.NaN);
+        expect(new byte[]{1, 2}).to.include((byte) 2);
+        expect(new char[]{'a', 'b'}).to.include('b');
+        expect(new boolean[]{true}).to.not.include(false);
+        expect(new int[]{1, 2, 3}).to.have.length(3);
+        expect(new double[0]).to.be.empty();
+
+        expect(new int[]{1, 2, 3}).to.eql(new int[]{1, 2, 3});
+        expect(new int[]{1, 2, 3}).to.not.eql(new int[]{1, 2, 4});
+        expect(new int[]{1, 2, 3}).to.not.eql(new long[]{1L, 2L, 3L});
+        expect(new int[]{1, 2, 3}).to.eql(new Integer[]{1, 2, 3});
+        expect(new long[]{3L, 1L, 2L}).to.have.members(new long[]{1L, 2L, 3L});
+        expect(new long[]{3L, 1L, 2L}).to.include.members(new long[]{2L});
+        expect(new double[]{3.0, 1.0}).to.not.include.members(new double[]{2.0});
+
+        expectAssertionError(
+                () -> expect(new int[]{1, 2, 3}).to.include(4, "blah"),
+                "blah: expected [1, 2, 3] to include 4"
+        );
+
+        expectAssertionError(
+                () -> expect(new double[]{1.5, 2.5}).to.eql(new double[]{1.5}, "blah"),
+                "blah: expected [1.5, 2.5] to deeply equal [1.5], but it has 2 elements instead of 1"
+        );
+
+        expectAssertionError(
+                () -> expect(new char[]{'a', 'b'}).to.not.eql(new char[]{'a', 'b'}, "blah"),
+                "blah: expected [a, b] to not deeply equal [a, b]"
+        );
+
+        expectAssertionError(
+                () -> expect(new byte[]{1, 2}).to.have.members(new byte[]{1, 3}),
+                "expected [1, 2] to have the same members as [1, 3], but it is missing [3] and has unexpected [2]"
         );
     }
 
@@ -671,55 +1528,55 @@ public class AssertionTest {
 
         expectAssertionError(
                 () -> expect(foo).to.have.keys("bar"),
-                "expected {foo=1} to have key \"bar\""
+                "expected {\"foo\"=1} to have key \"bar\""
         );
 
         expectAssertionError(
                 () -> expect(foo).to.have.keys("bar", "baz"),
-                "expected {foo=1} to have keys \"bar\", and \"baz\""
+                "expected {\"foo\"=1} to have keys \"bar\", and \"baz\""
         );
 
         expectAssertionError(
                 () -> expect(foo).to.have.keys("foo", "bar", "baz"),
-                "expected {foo=1} to have keys \"foo\", \"bar\", and \"baz\""
+                "expected {\"foo\"=1} to have keys \"foo\", \"bar\", and \"baz\""
         );
 
         expectAssertionError(
                 () -> expect(foo).to.not.have.keys("foo"),
-                "expected {foo=1} to not have key \"foo\""
+                "expected {\"foo\"=1} to not have key \"foo\""
         );
 
         expectAssertionError(
                 () -> expect(fooBar).to.not.have.keys("foo", "bar"),
-                "expected {foo=1, bar=2} to not have keys \"foo\", and \"bar\""
+                "expected {\"foo\"=1, \"bar\"=2} to not have keys \"foo\", and \"bar\""
         );
 
         expectAssertionError(
                 () -> expect(fooBar).to.have.all.keys("foo"),
-                "expected {foo=1, bar=2} to have key \"foo\""
+                "expected {\"foo\"=1, \"bar\"=2} to have key \"foo\""
         );
 
         expectAssertionError(
                 () -> expect(foo).to.not.contain.keys("foo"),
-                "expected {foo=1} to not contain key \"foo\""
+                "expected {\"foo\"=1} to not contain key \"foo\""
         );
 
         expectAssertionError(
                 () -> expect(foo).to.contain.keys("foo", "bar"),
-                "expected {foo=1} to contain keys \"foo\", and \"bar\""
+                "expected {\"foo\"=1} to contain keys \"foo\", and \"bar\""
         );
 
         expectAssertionError(
                 () -> expect(foo).to.have.any.keys("baz"),
-                "expected {foo=1} to have key \"baz\"");
+                "expected {\"foo\"=1} to have key \"baz\"");
 
         expectAssertionError(
                 () -> expect(fooBar).to.not.have.all.keys("foo", "bar"),
-                "expected {foo=1, bar=2} to not have keys \"foo\", and \"bar\"");
+                "expected {\"foo\"=1, \"bar\"=2} to not have keys \"foo\", and \"bar\"");
 
         expectAssertionError(
                 () -> expect(fooBar).to.not.have.any.keys("foo", "baz"),
-                "expected {foo=1, bar=2} to not have keys \"foo\", or \"baz\""
+                "expected {\"foo\"=1, \"bar\"=2} to not have keys \"foo\", or \"baz\""
         );
     }
     
@@ -934,11 +1791,11 @@ public class AssertionTest {
         );
         expectAssertionError(
                 () -> expect(new Integer[] {1, 2, 3}).to.include.members(new Integer[]{8, 4}),
-                "expected [1, 2, 3] to be a superset of [8, 4]"
+                "expected [1, 2, 3] to be a superset of [8, 4], but it is missing [8, 4]"
         );
         expectAssertionError(
                 () -> expect(new Integer[] {1, 2, 3}).to.include.members(new Integer[]{1, 2, 3, 4}),
-                "expected [1, 2, 3] to be a superset of [1, 2, 3, 4]"
+                "expected [1, 2, 3] to be a superset of [1, 2, 3, 4], but it is missing [4]"
         );
     }
 
@@ -960,18 +1817,46 @@ public class AssertionTest {
         );
         expectAssertionError(
                 () -> expect(new Integer[] {5, 4}).to.have.same.members(new Integer[0]),
-                "expected [5, 4] to have the same members as []"
+                "expected [5, 4] to have the same members as [], but it has unexpected [5, 4]"
         );
         expectAssertionError(
                 () -> expect(new Integer[] {5, 4}).to.have.same.members(new Integer[]{6, 5}),
-                "expected [5, 4] to have the same members as [6, 5]"
+                "expected [5, 4] to have the same members as [6, 5], but it is missing [6] and has unexpected [4]"
         );
         expectAssertionError(
                 () -> expect(new Integer[] {5, 4}).to.have.same.members(new Integer[]{5, 4, 2}),
-                "expected [5, 4] to have the same members as [5, 4, 2]"
+                "expected [5, 4] to have the same members as [5, 4, 2], but it is missing [2]"
         );
     }
 
+    @Test
+    public void checkMembersMultiplicity() {
+        expect(Arrays.asList(1, 1, 2)).to.have.members(2, 1, 1);
+        expect(Arrays.asList(1, 1, 2)).to.not.have.members(1, 2, 2);
+        expect(Arrays.asList(1, 1, 2)).to.include.members(1, 1);
+        expect(Arrays.asList(1, 2)).to.not.include.members(1, 1);
+        expect(new int[]{1, 1, 2}).to.have.members(new Integer[]{1, 2, 1});
+        expect(new Object[]{1, 1L, "1", null}).to.have.members(new Object[]{null, "1", 1L, 1});
+        expect(new Object[]{1, 1L}).to.not.have.members(1, 1);
+        expect(new double[]{Double.NaN, 0.0}).to.have.members(new double[]{0.0, Double.NaN});
+        expect(new double[]{0.0}).to.not.have.members(new double[]{-0.0});
+
+        expectAssertionError(
+                () -> expect(Arrays.asList("a", "b", "b")).to.have.members(new String[]{"a", "a", "b"}),
+                "expected [\"a\", \"b\", \"b\"] to have the same members as [\"a\", \"a\", \"b\"], "
+                        + "but it is missing [\"a\"] and has unexpected [\"b\"]"
+        );
+        expectAssertionError(
+                () -> expect(new long[]{1L, 2L}).to.include.members(new long[]{2L, 2L}),
+                "expected [1, 2] to be a superset of [2, 2], but it is missing [2]"
+        );
+
+        final int[] large = IntStream.range(0, 100_000).toArray();
+        final int[] reversed = IntStream.range(0, 100_000).map(i -> 99_999 - i).toArray();
+        expect(large).to.have.members(reversed);
+        expect(Arrays.stream(large).boxed().collect(Collectors.toList())).to.have.members(reversed);
+    }
+
     @Test
     public void checkMembers() {
         expect(new Integer[] {5, 4}).to.have.members(new Integer[] {4, 5});
@@ -990,15 +1875,15 @@ public class AssertionTest {
         );
         expectAssertionError(
                 () -> expect(new Integer[] {5, 4}).to.have.members(new Integer[0]),
-                "expected [5, 4] to have the same members as []"
+                "expected [5, 4] to have the same members as [], but it has unexpected [5, 4]"
         );
         expectAssertionError(
                 () -> expect(new Integer[] {5, 4}).to.have.members(new Integer[]{6, 5}),
-                "expected [5, 4] to have the same members as [6, 5]"
+                "expected [5, 4] to have the same members as [6, 5], but it is missing [6] and has unexpected [4]"
         );
         expectAssertionError(
                 () -> expect(new Integer[] {5, 4}).to.have.members(new Integer[]{5, 4, 2}),
-                "expected [5, 4] to have the same members as [5, 4, 2]"
+                "expected [5, 4] to have the same members as [5, 4, 2], but it is missing [2]"
         );
     }
 
@@ -1084,4 +1969,64 @@ public class AssertionTest {
                 "expected .value to not decrease"
         );
     }
+
+    @Test
+    public void checkProbes() {
+        final long[] counter = {0};
+        final double[] level = {1.0};
+        final List<String> list = new ArrayList<>();
+        final Runnable incFn = () -> { counter[0]++; level[0] += 0.5; list.add("tea"); };
+        final Runnable decFn = () -> counter[0]--;
+        final Runnable addFn = () -> list.add("tea");
+        final Runnable smFn = () -> {};
+
+        expect(incFn).to.change(list::size);
+        expect(smFn).to.not.change(list::size);
+        expect(incFn).to.increase(() -> counter[0]);
+        expect(incFn).to.increase(() -> level[0]);
+        expect(smFn).to.not.decrease(() -> counter[0]);
+        expect(decFn).to.decrease(() -> counter[0]);
+        expect(incFn).to.changeAll(Arrays.<Supplier<?>>asList(list::size, () -> counter[0]));
+
+        expectAssertionError(
+                () -> expect(smFn).to.change(list::size, "blah"),
+                "blah: expected the probed value to change, but it stayed 4"
+        );
+        expectAssertionError(
+                () -> expect(incFn).to.not.change(list::size),
+                "expected the probed value to not change, but it changed from 4 to 5"
+        );
+        expectAssertionError(
+                () -> expect(smFn).to.increase(() -> counter[0]),
+                "expected the probed value to increase, but it went from 4 to 4"
+        );
+        expectAssertionError(
+                () -> expect(incFn).to.decrease(() -> level[0]),
+                "expected the probed value to decrease, but it went from 3.5 to 4.0"
+        );
+        expectAssertionError(
+                () -> expect(addFn).to.changeAll(Arrays.<Supplier<?>>asList(list::size, () -> counter[0], () -> level[0])),
+                "expected the probed values to change, but probe 1 stayed 5, probe 2 stayed 4.0"
+        );
+
+        expect(incFn).to.increaseAll(() -> counter[0], list::size);
+        expect(incFn).to.increaseAll(() -> level[0], () -> level[0] * 2);
+        expect(decFn).to.decreaseAll(() -> counter[0], () -> -counter[0] * -2);
+        expect(decFn).to.changeAll(() -> counter[0], () -> counter[0] + 1);
+        expect(smFn).to.not.changeAll(() -> level[0], () -> 0.0);
+        expect(addFn).to.not.decreaseAll(() -> counter[0], list::size);
+
+        expectAssertionError(
+                () -> expect(addFn).to.increaseAll(new LongSupplier[]{list::size, () -> counter[0]}, "blah"),
+                "blah: expected the probed values to increase, but probe 1 stayed 5"
+        );
+        expectAssertionError(
+                () -> expect(incFn).to.decreaseAll(() -> level[0]),
+                "expected the probed values to decrease, but probe 0 changed from 5.0 to 5.5"
+        );
+        expectAssertionError(
+                () -> expect(incFn).to.not.changeAll(() -> counter[0], () -> 0L),
+                "expected the probed values to not change, but probe 0 changed from 6 to 7"
+        );
+    }
 }
@@ -0,0 +1,73 @@
+package com.netopyr.caj;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a property through {@link PropertyAccessor} with a reflective call of the getter.
+ *
+ * <pre>
+ *     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.netopyr.caj.PropertyAccessorBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertyAccessorBenchmark {
+
+    public static class Person {
+        private final int age;
+
+        public Person(int age) {
+            this.age = age;
+        }
+
+        public int getAge() {
+            return age;
+        }
+    }
+
+    private Person person;
+    private Method reflectiveGetter;
+    private PropertyAccessor accessor;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        person = new Person(42);
+        reflectiveGetter = Person.class.getMethod("getAge");
+        accessor = PropertyAccessor.of(Person.class, "age");
+    }
+
+    @Benchmark
+    public Object reflective() throws InvocationTargetException, IllegalAccessException {
+        return reflectiveGetter.invoke(person);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return accessor.get(person);
+    }
+
+    @Benchmark
+    public Object cachedLookup() {
+        return PropertyAccessor.of(Person.class, "age").get(person);
+    }
+
+    @Benchmark
+    public Assertion property() {
+        return Caj.expect(person).to.have.property("age", 42);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PropertyAccessorBenchmark.class.getSimpleName()).build()).run();
+    }
+}